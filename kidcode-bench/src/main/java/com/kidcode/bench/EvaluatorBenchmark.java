@@ -0,0 +1,53 @@
+package com.kidcode.bench;
+
+import com.kidcode.core.ast.Statement;
+import com.kidcode.core.compiler.CompiledProgram;
+import com.kidcode.core.compiler.Compiler;
+import com.kidcode.core.evaluator.Environment;
+import com.kidcode.core.evaluator.Evaluator;
+import com.kidcode.core.event.EventBuffer;
+import com.kidcode.core.lexer.Lexer;
+import com.kidcode.core.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Running already-parsed programs: the tree-walking Evaluator against the compiled
+// form the engine uses.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluatorBenchmark {
+
+    @Param({"loop", "functions", "lists", "drawing", "strings", "moves", "recursion"})
+    String workload;
+
+    List<Statement> program;
+    CompiledProgram compiled;
+
+    @Setup
+    public void setUp() {
+        Parser parser = new Parser(new Lexer(Workloads.named(workload)));
+        program = parser.parseProgram();
+        if (!parser.getErrors().isEmpty()) {
+            throw new IllegalStateException(parser.getErrors().toString());
+        }
+        compiled = new Compiler().compile(program);
+    }
+
+    @Benchmark
+    public Object evaluator() {
+        return new Evaluator(() -> false).evaluate(program, new Environment());
+    }
+
+    @Benchmark
+    public Object compiled() {
+        EventBuffer events = new EventBuffer();
+        compiled.run(new Environment(), () -> false, events);
+        return events;
+    }
+}
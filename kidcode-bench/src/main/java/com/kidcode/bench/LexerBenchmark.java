@@ -0,0 +1,42 @@
+package com.kidcode.bench;
+
+import com.kidcode.core.lexer.Lexer;
+import com.kidcode.core.lexer.Token;
+import com.kidcode.core.lexer.TokenType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Lexer.nextToken throughput over a large generated script.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param({"100", "1000"})
+    int blocks;
+
+    String source;
+
+    @Setup
+    public void setUp() {
+        source = Workloads.generated(blocks);
+    }
+
+    @Benchmark
+    public int nextToken(Blackhole blackhole) {
+        Lexer lexer = new Lexer(source);
+        int count = 0;
+        Token token;
+        do {
+            token = lexer.nextToken();
+            blackhole.consume(token);
+            count++;
+        } while (token.type() != TokenType.EOF);
+        return count;
+    }
+}
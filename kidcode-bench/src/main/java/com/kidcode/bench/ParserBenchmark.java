@@ -0,0 +1,39 @@
+package com.kidcode.bench;
+
+import com.kidcode.core.ast.Statement;
+import com.kidcode.core.lexer.Lexer;
+import com.kidcode.core.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Lexing and parsing a large generated script, as /api/validate does on every edit.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"100", "1000"})
+    int blocks;
+
+    String source;
+
+    @Setup
+    public void setUp() {
+        source = Workloads.generated(blocks);
+    }
+
+    @Benchmark
+    public List<Statement> parseProgram() {
+        Parser parser = new Parser(new Lexer(source));
+        List<Statement> program = parser.parseProgram();
+        if (!parser.getErrors().isEmpty()) {
+            throw new IllegalStateException(parser.getErrors().toString());
+        }
+        return program;
+    }
+}
@@ -0,0 +1,70 @@
+package com.kidcode.bench;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.kidcode.core.KidCodeEngine;
+import com.kidcode.core.event.ExecutionEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Writing a run's events as the JSON array /api/execute returns, from a plain list
+// and from the EventBuffer view the engine hands out.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private final ObjectWriter writer = new ObjectMapper()
+            .writerFor(new TypeReference<List<ExecutionEvent>>() {})
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    List<ExecutionEvent> bufferView;
+    List<ExecutionEvent> list;
+
+    @Setup
+    public void setUp() {
+        bufferView = new KidCodeEngine().execute(Workloads.DRAWING);
+        list = new ArrayList<>(bufferView);
+    }
+
+    @Benchmark
+    public long list() throws IOException {
+        return write(list);
+    }
+
+    @Benchmark
+    public long bufferView() throws IOException {
+        return write(bufferView);
+    }
+
+    private long write(List<ExecutionEvent> events) throws IOException {
+        CountingStream out = new CountingStream();
+        writer.writeValue(out, events);
+        return out.count;
+    }
+
+    // Discards the bytes; only their number matters.
+    private static final class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.kidcode.bench;
+
+// KidCode scripts shared by the benchmarks.
+final class Workloads {
+
+    private Workloads() {}
+
+    static final String LOOP = """
+            set total = 0
+            set i = 0
+            repeat 200000
+                set total = total + i * 2 - 1
+                set i = i + 1
+                if total == 1000000
+                    set total = 0
+                end if
+            end repeat
+            """;
+
+    static final String FUNCTIONS = """
+            set a = 1
+            set b = 2
+            define step p q
+                repeat 50
+                    set r = p + q
+                    set s = a + b
+                    set p = r - 1
+                end repeat
+            end define
+            repeat 4000
+                step 1 2
+            end repeat
+            """;
+
+    static final String LISTS = """
+            set items = []
+            set i = 0
+            repeat 20000
+                set items = pack(items, i)
+                set i = i + 1
+            end repeat
+            set total = 0
+            set j = 0
+            set n = count(items)
+            repeat n
+                set total = total + items[j]
+                set j = j + 1
+            end repeat
+            say total
+            """;
+
+    static final String DRAWING = """
+            set colors = ["red", "orange", "yellow", "green", "blue", "purple"]
+            set c = 0
+            define petal size
+                repeat 36
+                    move forward size
+                    turn right 10
+                end repeat
+            end define
+            repeat 2000
+                color colors[c]
+                petal 3
+                turn right 7
+                set c = c + 1
+                if c == 6
+                    set c = 0
+                end if
+            end repeat
+            """;
+
+    // Long straight runs between turns, like a spiral or a grid.
+    static final String MOVES = """
+            set size = 1
+            repeat 2000
+                repeat 25
+                    move forward size
+                    move forward 1
+                end repeat
+                turn right 91
+                set size = size + 1
+            end repeat
+            """;
+
+    // Recursive drawings: a Koch curve, and a spiral that calls itself last.
+    static final String RECURSION = """
+            define koch size depth
+                if depth == 0
+                    move forward size
+                else
+                    koch size / 3 depth - 1
+                    turn left 60
+                    koch size / 3 depth - 1
+                    turn right 120
+                    koch size / 3 depth - 1
+                    turn left 60
+                    koch size / 3 depth - 1
+                end if
+            end define
+            define spiral n
+                move forward n
+                turn right 17
+                if n != 0
+                    spiral n - 1
+                end if
+            end define
+            repeat 100
+                koch 729 4
+                turn right 120
+                spiral 500
+            end repeat
+            """;
+
+    static final String STRINGS = """
+            set i = 0
+            set line = ""
+            repeat 50000
+                set word = "item " + i
+                set line = word + ": " + whisper(i * 2)
+                set i = i + 1
+            end repeat
+            say line
+            """;
+
+    static String named(String workload) {
+        return switch (workload) {
+            case "loop" -> LOOP;
+            case "functions" -> FUNCTIONS;
+            case "lists" -> LISTS;
+            case "drawing" -> DRAWING;
+            case "strings" -> STRINGS;
+            case "moves" -> MOVES;
+            case "recursion" -> RECURSION;
+            default -> throw new IllegalArgumentException("Unknown workload: " + workload);
+        };
+    }
+
+    /**
+     * A large script with every kind of statement, made of {@code blocks} copies of
+     * a function definition and its use, each with its own names.
+     */
+    static String generated(int blocks) {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < blocks; i++) {
+            String id = suffix(i);
+            source.append("# block ").append(i).append('\n')
+                  .append("set size_").append(id).append(" = ").append(i % 50 + 10).append('\n')
+                  .append("set colors_").append(id).append(" = [\"red\", \"green\", \"blue\"]\n")
+                  .append("define shape_").append(id).append(" length\n")
+                  .append("    repeat 4\n")
+                  .append("        move forward length\n")
+                  .append("        turn right 90\n")
+                  .append("    end repeat\n")
+                  .append("end define\n")
+                  .append("if size_").append(id).append(" == 20\n")
+                  .append("    color colors_").append(id).append("[1]\n")
+                  .append("else\n")
+                  .append("    say \"size is \" + size_").append(id).append('\n')
+                  .append("end if\n")
+                  .append("shape_").append(id).append(" size_").append(id).append('\n');
+        }
+        return source.toString();
+    }
+
+    // Identifiers can't contain digits, so blocks are numbered a, b, ..., z, ba, bb, ...
+    private static String suffix(int n) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.insert(0, (char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return letters.toString();
+    }
+}
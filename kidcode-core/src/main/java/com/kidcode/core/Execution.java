@@ -0,0 +1,64 @@
+package com.kidcode.core;
+
+import com.kidcode.core.compiler.PausableRun;
+import com.kidcode.core.event.EventSink;
+import com.kidcode.core.event.ExecutionEvent;
+
+/**
+ * A run that is carried out a slice of statements at a time, e.g. one slice per
+ * request or per step the user takes. Between slices it can be saved as an
+ * {@link ExecutionSnapshot} and resumed later by any engine, so a long script
+ * never has to be re-run from the start.
+ *
+ * The events of all slices together are the events a single run would produce.
+ * Not thread-safe: run one slice at a time.
+ */
+public final class Execution {
+    private final String source;
+    private final ParsedProgram program;
+    private final PausableRun run; // null when the program didn't parse
+    private boolean reportedErrors;
+
+    Execution(String source, ParsedProgram program, PausableRun run) {
+        this.source = source;
+        this.program = program;
+        this.run = run;
+    }
+
+    /**
+     * Runs at most the given number of further statements, sending their events
+     * to the sink. A program with parse errors sends them and completes.
+     *
+     * @return {@link ExecutionStatus#PAUSED} if there is more to run, otherwise how the run ended
+     */
+    public ExecutionStatus run(long statements, EventSink sink) {
+        if (run == null) {
+            if (!reportedErrors) {
+                reportedErrors = true;
+                program.errors().forEach(err -> sink.accept(new ExecutionEvent.ErrorEvent(err)));
+            }
+            return ExecutionStatus.COMPLETED;
+        }
+        return run.proceed(statements, sink);
+    }
+
+    public ExecutionStatus status() {
+        if (run == null) {
+            return reportedErrors ? ExecutionStatus.COMPLETED : ExecutionStatus.PAUSED;
+        }
+        return run.status();
+    }
+
+    /**
+     * Saves a paused run. Nothing of this object is needed to resume it, only the
+     * snapshot, which carries the source.
+     *
+     * @throws IllegalStateException if the run hasn't started or has ended
+     */
+    public ExecutionSnapshot snapshot() {
+        if (run == null) {
+            throw new IllegalStateException("A program with parse errors has nothing to save");
+        }
+        return new ExecutionSnapshot(source, run.capture());
+    }
+}
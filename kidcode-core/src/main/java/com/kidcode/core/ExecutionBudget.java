@@ -0,0 +1,43 @@
+package com.kidcode.core;
+
+import java.time.Duration;
+
+/**
+ * How much one run may do before it is cut off: statements executed, wall-clock
+ * time and events emitted. A run that goes over ends with one ErrorEvent and the
+ * matching {@link ExecutionStatus}.
+ *
+ * Statements and events are counted exactly. The clock, like the stop signal, is
+ * only read at loop heads and calls, once every {@link #CHECK_INTERVAL} statements
+ * or loop iterations, so a run may overshoot its time by that many of them.
+ *
+ * @param maxInstructions statements a run may start
+ * @param maxTime         wall-clock time from the start of the run; null for no limit
+ * @param maxEvents       events a run may emit, not counting the final error
+ */
+public record ExecutionBudget(long maxInstructions, Duration maxTime, long maxEvents) {
+
+    /** Statements, or loop iterations and calls, between reads of the clock and the stop signal. */
+    public static final int CHECK_INTERVAL = 1024;
+
+    /** A million statements, and no limit on time or events. */
+    public static final ExecutionBudget DEFAULT = new ExecutionBudget(1_000_000, null, Long.MAX_VALUE);
+
+    public ExecutionBudget {
+        if (maxInstructions < 0 || maxEvents < 0 || (maxTime != null && maxTime.isNegative())) {
+            throw new IllegalArgumentException("Budget limits cannot be negative");
+        }
+    }
+
+    public ExecutionBudget withMaxInstructions(long maxInstructions) {
+        return new ExecutionBudget(maxInstructions, maxTime, maxEvents);
+    }
+
+    public ExecutionBudget withMaxTime(Duration maxTime) {
+        return new ExecutionBudget(maxInstructions, maxTime, maxEvents);
+    }
+
+    public ExecutionBudget withMaxEvents(long maxEvents) {
+        return new ExecutionBudget(maxInstructions, maxTime, maxEvents);
+    }
+}
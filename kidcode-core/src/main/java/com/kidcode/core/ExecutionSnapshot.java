@@ -0,0 +1,249 @@
+package com.kidcode.core;
+
+import com.kidcode.core.compiler.MachineState;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A paused {@link Execution}: the program's source and where its run stands.
+ * Resume it with {@link KidCodeEngine#resume}.
+ *
+ * {@link #toBytes()} gives a compact binary form that can be stored or sent to
+ * another server. Lists keep their identity, so two variables holding the same
+ * list still share it after a round trip. {@link #fromBytes} checks what it
+ * reads, so bytes from an untrusted client are safe to pass; whether they fit
+ * the program and its budget is checked when resuming.
+ */
+public record ExecutionSnapshot(String source, MachineState state) {
+
+    // "KCS" and the format version.
+    private static final int MAGIC = 0x4B435301;
+    // Deeper lists are refused rather than risking the stack.
+    private static final int MAX_LIST_DEPTH = 256;
+
+    private static final byte NULL = 0;
+    private static final byte INTEGER = 1;
+    private static final byte FALSE = 2;
+    private static final byte TRUE = 3;
+    private static final byte STRING = 4;
+    private static final byte LIST = 5;           // a list pack() can add to
+    private static final byte READ_ONLY_LIST = 6; // e.g. from after()
+    private static final byte SAME_LIST = 7;      // a list written earlier, by index
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            new Writer(out).snapshot(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** @throws IllegalArgumentException if the bytes are not a snapshot */
+    public static ExecutionSnapshot fromBytes(byte[] bytes) {
+        try {
+            return new Reader(new DataInputStream(new ByteArrayInputStream(bytes))).snapshot();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Not a valid snapshot", e);
+        }
+    }
+
+    private static final class Writer {
+        private final DataOutputStream out;
+        private final Map<List<?>, Integer> lists = new IdentityHashMap<>();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void snapshot(ExecutionSnapshot snapshot) throws IOException {
+            MachineState state = snapshot.state();
+            out.writeInt(MAGIC);
+            string(snapshot.source());
+            out.writeLong(state.instructionCount());
+            out.writeLong(state.eventCount());
+            MachineState.Turtle turtle = state.turtle();
+            out.writeInt(turtle.x());
+            out.writeInt(turtle.y());
+            out.writeDouble(turtle.direction());
+            out.writeBoolean(turtle.penDown());
+            string(turtle.penColor());
+            ints(state.functions());
+            out.writeInt(state.frames().size());
+            for (MachineState.FrameState frame : state.frames()) {
+                out.writeInt(frame.definition());
+                out.writeInt(frame.pc());
+                ints(frame.loops());
+                out.writeInt(frame.values().length);
+                for (int slot = 0; slot < frame.values().length; slot++) {
+                    out.writeBoolean(frame.assigned()[slot]);
+                    if (frame.assigned()[slot]) {
+                        value(frame.values()[slot], 0);
+                    }
+                }
+            }
+        }
+
+        private void value(Object value, int depth) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof Integer number) {
+                out.writeByte(INTEGER);
+                out.writeInt(number);
+            } else if (value instanceof Boolean bool) {
+                out.writeByte(bool ? TRUE : FALSE);
+            } else if (value instanceof String text) {
+                out.writeByte(STRING);
+                string(text);
+            } else if (value instanceof List<?> list) {
+                Integer seen = lists.get(list);
+                if (seen != null) {
+                    out.writeByte(SAME_LIST);
+                    out.writeInt(seen);
+                    return;
+                }
+                if (depth == MAX_LIST_DEPTH) {
+                    throw new IllegalStateException("Lists are nested too deeply to save");
+                }
+                lists.put(list, lists.size());
+                out.writeByte(list instanceof ArrayList ? LIST : READ_ONLY_LIST);
+                out.writeInt(list.size());
+                for (Object item : list) {
+                    value(item, depth + 1);
+                }
+            } else {
+                throw new IllegalStateException("Cannot save a value of type " + value.getClass().getSimpleName());
+            }
+        }
+
+        private void ints(int[] values) throws IOException {
+            out.writeInt(values.length);
+            for (int value : values) {
+                out.writeInt(value);
+            }
+        }
+
+        private void string(String text) throws IOException {
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+        private final List<List<Object>> lists = new ArrayList<>();
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        ExecutionSnapshot snapshot() throws IOException {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Unknown format");
+            }
+            String source = string();
+            long instructionCount = in.readLong();
+            long eventCount = in.readLong();
+            MachineState.Turtle turtle = new MachineState.Turtle(in.readInt(), in.readInt(), in.readDouble(),
+                    in.readBoolean(), string());
+            int[] functions = ints();
+            int frameCount = count(Integer.BYTES);
+            List<MachineState.FrameState> frames = new ArrayList<>(frameCount);
+            for (int i = 0; i < frameCount; i++) {
+                int definition = in.readInt();
+                int pc = in.readInt();
+                int[] loops = ints();
+                int slotCount = count(1);
+                boolean[] assigned = new boolean[slotCount];
+                Object[] values = new Object[slotCount];
+                for (int slot = 0; slot < slotCount; slot++) {
+                    assigned[slot] = in.readBoolean();
+                    if (assigned[slot]) {
+                        values[slot] = value(0);
+                    }
+                }
+                frames.add(new MachineState.FrameState(definition, pc, loops, assigned, values));
+            }
+            if (in.available() > 0) {
+                throw new IOException("Trailing bytes");
+            }
+            return new ExecutionSnapshot(source, new MachineState(instructionCount, eventCount, turtle, functions, frames));
+        }
+
+        private Object value(int depth) throws IOException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case INTEGER:
+                    return in.readInt();
+                case FALSE:
+                    return false;
+                case TRUE:
+                    return true;
+                case STRING:
+                    return string();
+                case SAME_LIST: {
+                    int index = in.readInt();
+                    if (index < 0 || index >= lists.size()) {
+                        throw new IOException("Unknown list " + index);
+                    }
+                    return lists.get(index);
+                }
+                case LIST:
+                case READ_ONLY_LIST: {
+                    if (depth == MAX_LIST_DEPTH) {
+                        throw new IOException("Lists nested too deeply");
+                    }
+                    int size = count(1);
+                    // Registered before its items are read, since it may contain itself.
+                    List<Object> items = new ArrayList<>(size);
+                    lists.add(tag == LIST ? items : Collections.unmodifiableList(items));
+                    List<Object> list = lists.get(lists.size() - 1);
+                    for (int i = 0; i < size; i++) {
+                        items.add(value(depth + 1));
+                    }
+                    return list;
+                }
+                default:
+                    throw new IOException("Unknown value tag " + tag);
+            }
+        }
+
+        private int[] ints() throws IOException {
+            int[] values = new int[count(Integer.BYTES)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = in.readInt();
+            }
+            return values;
+        }
+
+        private String string() throws IOException {
+            byte[] utf8 = new byte[count(1)];
+            in.readFully(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        // A length prefix, checked against what is left so bad input can't make us allocate much.
+        private int count(int bytesPerItem) throws IOException {
+            int count = in.readInt();
+            if (count < 0 || (long) count * bytesPerItem > in.available()) {
+                throw new IOException("Bad length " + count);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.kidcode.core;
+
+/** How a run ended. */
+public enum ExecutionStatus {
+    /** The program ran to its end, or failed to parse. The same source always produces the same events. */
+    COMPLETED,
+    /** The instruction limit was hit; the run ended with an error. */
+    INSTRUCTION_LIMIT,
+    /** The run took longer than its budget's time; it ended with an error. */
+    TIME_LIMIT,
+    /** The run emitted as many events as its budget allows; it ended with an error. */
+    EVENT_LIMIT,
+    /** The stop signal ended the run early. */
+    STOPPED,
+    /** A slice of a resumable run is done and more remains; see {@link Execution}. */
+    PAUSED
+}
@@ -1,41 +1,128 @@
 package com.kidcode.core;
 
-import com.kidcode.core.ast.Statement;
 import com.kidcode.core.evaluator.Environment;
-import com.kidcode.core.evaluator.Evaluator;
+import com.kidcode.core.event.EventBuffer;
+import com.kidcode.core.event.EventSink;
 import com.kidcode.core.event.ExecutionEvent;
-import com.kidcode.core.lexer.Lexer;
-import com.kidcode.core.parser.Parser;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
 
 public class KidCodeEngine {
 
     private volatile boolean executionStopped = false;
+    private final ProgramCache cache;
+
+    public KidCodeEngine() {
+        this(null);
+    }
+
+    // Programs are looked up in the cache instead of being parsed again; null disables caching.
+    public KidCodeEngine(ProgramCache cache) {
+        this.cache = cache;
+    }
 
     public void stopExecution() {
         this.executionStopped = true;
     }
 
+    // The list is a read-only view over an EventBuffer; see executeBuffered.
     public List<ExecutionEvent> execute(String sourceCode) {
-        this.executionStopped = false;
+        return executeBuffered(sourceCode).events();
+    }
+
+    /**
+     * Runs the program to completion and returns its events in primitive form.
+     * Prefer this over {@link #execute(String)} for long runs that are replayed
+     * or encoded rather than inspected event by event.
+     */
+    public EventBuffer executeBuffered(String sourceCode) {
+        EventBuffer buffer = new EventBuffer();
+        execute(sourceCode, buffer);
+        return buffer;
+    }
+
+    /**
+     * Runs the program and streams its events to the sink while it executes,
+     * instead of collecting them all first. Parse errors are delivered to the
+     * sink as ErrorEvents.
+     */
+    public ExecutionStatus execute(String sourceCode, EventSink sink) {
+        return execute(sourceCode, sink, () -> false);
+    }
+
+    /**
+     * Like {@link #execute(String, EventSink)}, but also stops when the given
+     * signal returns true, e.g. when a deadline set by the caller has passed.
+     * The signal is polled every {@link ExecutionBudget#CHECK_INTERVAL} statements.
+     *
+     * @return how the run ended; only {@link ExecutionStatus#COMPLETED} runs are
+     *         guaranteed to produce the same events every time
+     */
+    public ExecutionStatus execute(String sourceCode, EventSink sink, Supplier<Boolean> stopSignal) {
+        ParsedProgram program = cache != null ? cache.get(sourceCode) : ParsedProgram.parse(sourceCode);
+        return execute(program, sink, stopSignal);
+    }
 
-        Lexer lexer = new Lexer(sourceCode);
-        Parser parser = new Parser(lexer);
-        List<Statement> program = parser.parseProgram();
+    /** Runs a program that was parsed earlier, e.g. one an editor session keeps up to date. */
+    public ExecutionStatus execute(ParsedProgram program, EventSink sink, Supplier<Boolean> stopSignal) {
+        return execute(program, sink, stopSignal, ExecutionBudget.DEFAULT);
+    }
+
+    /**
+     * Runs the program within the given limits on statements, time and events,
+     * e.g. a per-user quota. A run that goes over ends with an ErrorEvent and the
+     * status naming the limit.
+     */
+    public ExecutionStatus execute(String sourceCode, EventSink sink, ExecutionBudget budget) {
+        ParsedProgram program = cache != null ? cache.get(sourceCode) : ParsedProgram.parse(sourceCode);
+        return execute(program, sink, () -> false, budget);
+    }
 
-        List<String> errors = parser.getErrors();
-        if (!errors.isEmpty()) {
-            List<ExecutionEvent> errorEvents = new ArrayList<>();
-            errors.forEach(err -> errorEvents.add(new ExecutionEvent.ErrorEvent(err)));
-            return errorEvents;
+    /**
+     * Runs a parsed program within the given limits, also stopping when the
+     * signal returns true. The signal and the clock are only read every
+     * {@link ExecutionBudget#CHECK_INTERVAL} statements.
+     */
+    public ExecutionStatus execute(ParsedProgram program, EventSink sink, Supplier<Boolean> stopSignal, ExecutionBudget budget) {
+        this.executionStopped = false;
+
+        if (program.hasErrors()) {
+            program.errors().forEach(err -> sink.accept(new ExecutionEvent.ErrorEvent(err)));
+            return ExecutionStatus.COMPLETED;
         }
 
-        Supplier<Boolean> stopSignal = () -> executionStopped;
-        Evaluator evaluator = new Evaluator(stopSignal);
         Environment environment = new Environment();
+        return program.compiled().run(environment, () -> executionStopped || stopSignal.get(), sink, budget);
+    }
 
-        return evaluator.evaluate(program, environment);
+    /**
+     * Prepares a run that is carried out a slice at a time with
+     * {@link Execution#run}; nothing runs until then. The budget applies to the
+     * whole run, except the time limit, which applies to each slice.
+     */
+    public Execution start(String sourceCode, ExecutionBudget budget) {
+        ParsedProgram program = cache != null ? cache.get(sourceCode) : ParsedProgram.parse(sourceCode);
+        this.executionStopped = false;
+        if (program.hasErrors()) {
+            return new Execution(sourceCode, program, null);
+        }
+        return new Execution(sourceCode, program,
+                program.compiled().start(new Environment(), () -> executionStopped, budget));
+    }
+
+    /**
+     * Picks up a run saved by {@link Execution#snapshot()}, on this or any other engine.
+     *
+     * @throws IllegalArgumentException if the snapshot doesn't fit its own source,
+     *         e.g. because it was tampered with
+     */
+    public Execution resume(ExecutionSnapshot snapshot, ExecutionBudget budget) {
+        ParsedProgram program = cache != null ? cache.get(snapshot.source()) : ParsedProgram.parse(snapshot.source());
+        if (program.hasErrors()) {
+            throw new IllegalArgumentException("Snapshot source does not parse");
+        }
+        this.executionStopped = false;
+        return new Execution(snapshot.source(), program,
+                program.compiled().resume(snapshot.state(), new Environment(), () -> executionStopped, budget));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package com.kidcode.core;
+
+import com.kidcode.core.ast.Statement;
+import com.kidcode.core.compiler.CompiledProgram;
+import com.kidcode.core.compiler.Compiler;
+import com.kidcode.core.lexer.Lexer;
+import com.kidcode.core.parser.Parser;
+
+import java.util.List;
+
+/**
+ * The result of lexing, parsing and compiling one source text. It is immutable,
+ * so one instance can be shared by every run of the same program.
+ *
+ * @param statements the parsed program
+ * @param errors     parser errors; empty if the program is valid
+ * @param compiled   the compiled form, or null if there were parser errors
+ */
+public record ParsedProgram(List<Statement> statements, List<String> errors, CompiledProgram compiled) {
+
+    public static ParsedProgram parse(String sourceCode) {
+        Parser parser = new Parser(new Lexer(sourceCode));
+        return of(parser.parseProgram(), parser.getErrors());
+    }
+
+    /** Compiles statements parsed elsewhere, e.g. by an {@code IncrementalParser}. */
+    public static ParsedProgram of(List<Statement> parsedStatements, List<String> parseErrors) {
+        List<Statement> statements = List.copyOf(parsedStatements);
+        List<String> errors = List.copyOf(parseErrors);
+        // Lower the AST once; loops then run over pre-resolved instructions.
+        CompiledProgram compiled = errors.isEmpty() ? new Compiler().compile(statements) : null;
+        return new ParsedProgram(statements, errors, compiled);
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
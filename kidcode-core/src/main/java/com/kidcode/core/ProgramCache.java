@@ -0,0 +1,69 @@
+package com.kidcode.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A least-recently-used cache of {@link ParsedProgram}s, so the same example
+ * submitted over and over is lexed, parsed and compiled only once.
+ *
+ * Entries are keyed by the source text: its content hash picks the bucket and the
+ * full comparison rules out collisions. The cache is bounded both by entry count
+ * and by the total length of the cached sources. It is safe to share between
+ * threads; two threads missing on the same source may both parse it.
+ */
+public final class ProgramCache {
+    private final int maxEntries;
+    private final long maxSourceChars;
+    private final LinkedHashMap<String, ParsedProgram> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sourceChars = 0;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ProgramCache(int maxEntries, long maxSourceChars) {
+        this.maxEntries = maxEntries;
+        this.maxSourceChars = maxSourceChars;
+    }
+
+    public ParsedProgram get(String sourceCode) {
+        synchronized (this) {
+            ParsedProgram cached = entries.get(sourceCode);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        // Parse outside the lock so a large program doesn't hold up other requests.
+        ParsedProgram parsed = ParsedProgram.parse(sourceCode);
+        if (sourceCode.length() <= maxSourceChars) {
+            put(sourceCode, parsed);
+        }
+        return parsed;
+    }
+
+    private synchronized void put(String sourceCode, ParsedProgram parsed) {
+        if (entries.put(sourceCode, parsed) == null) {
+            sourceChars += sourceCode.length();
+        }
+        Iterator<Map.Entry<String, ParsedProgram>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || sourceChars > maxSourceChars) {
+            sourceChars -= eldest.next().getKey().length();
+            eldest.remove();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -28,14 +28,37 @@ public final class Builtins {
         );
     }
 
+    /**
+     * Checks if the given color name is supported by KidCode.
+     * 
+     * @param colorName the color name to check (case-insensitive)
+     * @return true if the color is supported, false otherwise
+     */
+    public static boolean isSupportedColor(String colorName) {
+        if (colorName == null) {
+            return false;
+        }
+        return switch (colorName.toLowerCase()) {
+            case "red", "green", "blue", "yellow", "orange", "purple", "black", "white",
+                 "cyan", "magenta", "pink", "brown" -> true;
+            default -> false;
+        };
+    }
+
     public static boolean isBuiltin(String name) {
         return BUILTINS.containsKey(name);
     }
 
+    // Resolves a built-in once, so compiled call sites can skip the name lookup on every call.
+    public static Function<List<Object>, Object> lookup(String name) {
+        Builtin builtin = BUILTINS.get(name);
+        return builtin == null ? null : builtin.function();
+    }
+
     public static Object apply(String name, List<Object> args) {
         Builtin builtin = BUILTINS.get(name);
         if (builtin == null) {
-            return "Error: Unknown built-in function '" + name + "'.";
+            return new ErrorValue("Error: Unknown built-in function '" + name + "'.");
         }
         return builtin.function().apply(args);
     }
@@ -44,35 +67,35 @@ public final class Builtins {
 
     private static Object countFunction(List<Object> args) {
         if (args.size() != 1) {
-            return "Error: count() expects exactly 1 argument, but got " + args.size();
+            return new ErrorValue("Error: count() expects exactly 1 argument, but got " + args.size());
         }
         Object target = args.get(0);
         if (target instanceof String s) { return s.length(); }
         if (target instanceof List<?> l) { return l.size(); }
-        return "Error: count() can only be used on a list or a string.";
+        return new ErrorValue("Error: count() can only be used on a list or a string.");
     }
 
     private static Object whisperFunction(List<Object> args) {
         if (args.size() != 1) {
-            return "Error: whisper() expects exactly 1 argument, but got " + args.size();
+            return new ErrorValue("Error: whisper() expects exactly 1 argument, but got " + args.size());
         }
         return String.valueOf(args.get(0));
     }
 
     private static Object packFunction(List<Object> args) {
         if (args.size() != 2) {
-            return "Error: pack() expects 2 arguments: a list and an item.";
+            return new ErrorValue("Error: pack() expects 2 arguments: a list and an item.");
         }
         Object listObj = args.get(0);
         Object item = args.get(1);
         if (!(listObj instanceof List)) {
-            return "Error: pack() expects a list as the first argument.";
+            return new ErrorValue("Error: pack() expects a list as the first argument.");
         }
         // Safe cast after type check
         @SuppressWarnings("unchecked")
         List<Object> list = (List<Object>) listObj;
         if (item == null) { // This check is fine, but let's keep the logic flow
-            return "Error: cannot pack a null item.";
+            return new ErrorValue("Error: cannot pack a null item.");
         }
         list.add(item);
         return list;
@@ -80,11 +103,11 @@ public final class Builtins {
 
     private static Object frontFunction(List<Object> args) {
         if (args.size() != 1) {
-            return "Error: front() expects exactly 1 argument: a list.";
+            return new ErrorValue("Error: front() expects exactly 1 argument: a list.");
         }
         Object backpack = args.get(0);
         if (!(backpack instanceof List<?> list)) {
-            return "Error: front() expects a list.";
+            return new ErrorValue("Error: front() expects a list.");
         }
         if (list.isEmpty()) {
             return null;
@@ -94,11 +117,11 @@ public final class Builtins {
 
     private static Object backFunction(List<Object> args) {
         if (args.size() != 1) {
-            return "Error: back() expects exactly 1 argument: a list.";
+            return new ErrorValue("Error: back() expects exactly 1 argument: a list.");
         }
         Object backpack = args.get(0);
         if (!(backpack instanceof List<?> list)) {
-            return "Error: back() expects a list.";
+            return new ErrorValue("Error: back() expects a list.");
         }
         if (list.isEmpty()) {
             return null;
@@ -108,11 +131,11 @@ public final class Builtins {
 
     private static Object afterFunction(List<Object> args) {
         if (args.size() != 1) {
-            return "Error: after() expects exactly 1 argument: a list.";
+            return new ErrorValue("Error: after() expects exactly 1 argument: a list.");
         }
         Object backpack = args.get(0);
         if (!(backpack instanceof List<?> list)) {
-            return "Error: after() expects a list.";
+            return new ErrorValue("Error: after() expects a list.");
         }
         if (list.isEmpty()) {
             return List.of(); // Return empty immutable list
@@ -122,28 +145,28 @@ public final class Builtins {
 
     private static Object findFunction(List<Object> args) {
         if (args.size() != 2) {
-            return "Error: find() expects 2 arguments: a list and an item.";
+            return new ErrorValue("Error: find() expects 2 arguments: a list and an item.");
         }
         Object listObj = args.get(0);
         Object item = args.get(1);
         if (!(listObj instanceof List<?> list)) {
-            return "Error: find() expects a list as the first argument.";
+            return new ErrorValue("Error: find() expects a list as the first argument.");
         }
         return list.contains(item);
     }
 
     private static Object solveFunction(List<Object> args) {
         if (args.size() != 1) {
-            return "Error: solve() expects exactly 1 argument (a string).";
+            return new ErrorValue("Error: solve() expects exactly 1 argument (a string).");
         }
         Object arg = args.get(0);
         if (!(arg instanceof String s)) {
-            return "Error: solve() expects a string input.";
+            return new ErrorValue("Error: solve() expects a string input.");
         }
 
         s = s.trim();
         if (s.isEmpty()) {
-            return "Error: solve() cannot convert empty string to a number.";
+            return new ErrorValue("Error: solve() cannot convert empty string to a number.");
         }
 
         try {
@@ -152,14 +175,14 @@ public final class Builtins {
             }
             return Double.parseDouble(s);
         } catch (NumberFormatException e) {
-            return "Error: solve() cannot convert input to a number.";
+            return new ErrorValue("Error: solve() cannot convert input to a number.");
         }
     }
 
     // --- New kind() built-in ---
     private static Object kindFunction(List<Object> args) {
         if (args.size() != 1) {
-            return "Error: kind() expects exactly 1 argument, but got " + args.size();
+            return new ErrorValue("Error: kind() expects exactly 1 argument, but got " + args.size());
         }
         Object obj = args.get(0);
 
@@ -0,0 +1,21 @@
+package com.kidcode.core.builtins;
+
+/**
+ * A runtime error, passed along in place of a value until a statement reports
+ * it. Errors are recognised by type, so checking a value costs one instanceof,
+ * and a user string that happens to start with "Error:" is just a string.
+ *
+ * @param message the full text shown to the user, e.g. "Error: Division by zero"
+ */
+public record ErrorValue(String message) {
+
+    public static boolean isError(Object value) {
+        return value instanceof ErrorValue;
+    }
+
+    // Errors that end up inside a larger message read the same as before.
+    @Override
+    public String toString() {
+        return message;
+    }
+}
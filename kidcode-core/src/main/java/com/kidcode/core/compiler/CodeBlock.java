@@ -0,0 +1,6 @@
+package com.kidcode.core.compiler;
+
+// A flat list of instructions plus what a frame running it must allocate: its
+// variable slots and its 'repeat' loop counters. The main program and every
+// function body each compile to one block.
+record CodeBlock(Instruction[] instructions, int loopSlots, Resolver.Layout layout) {}
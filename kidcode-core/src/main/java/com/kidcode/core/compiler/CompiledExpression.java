@@ -0,0 +1,8 @@
+package com.kidcode.core.compiler;
+
+// An expression that has been lowered once by the Compiler. Evaluating it
+// never re-inspects the AST node it came from.
+@FunctionalInterface
+interface CompiledExpression {
+    Object evaluate(Frame frame);
+}
@@ -0,0 +1,3 @@
+package com.kidcode.core.compiler;
+
+record CompiledFunction(String name, int[] parameterSlots, CodeBlock body) {}
@@ -0,0 +1,82 @@
+package com.kidcode.core.compiler;
+
+import com.kidcode.core.ExecutionBudget;
+import com.kidcode.core.ExecutionStatus;
+import com.kidcode.core.evaluator.Environment;
+import com.kidcode.core.event.EventSink;
+import com.kidcode.core.event.ExecutionEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A KidCode program lowered by the {@link Compiler}. It is immutable, so it can
+ * be run any number of times, from any thread, without being compiled again.
+ */
+public final class CompiledProgram {
+    private final CodeBlock main;
+    private final int functionCount;
+    // Every 'define' in the program, nested ones included, in source order.
+    private final List<Instructions.Define> definitions = new ArrayList<>();
+
+    CompiledProgram(CodeBlock main, int functionCount) {
+        this.main = main;
+        this.functionCount = functionCount;
+        collectDefinitions(main);
+    }
+
+    private void collectDefinitions(CodeBlock block) {
+        for (Instruction instruction : block.instructions()) {
+            if (instruction instanceof Instructions.Define define) {
+                definitions.add(define);
+                collectDefinitions(define.function().body());
+            }
+        }
+    }
+
+    /**
+     * Runs the program against the given environment, pushing each event to the
+     * sink as it is produced.
+     *
+     * @param env        the global scope, holding Cody's starting state
+     * @param stopSignal polled while running; returning true ends the run early
+     * @param sink       receives the events, identical to what the tree-walking Evaluator emits
+     * @return how the run ended
+     */
+    public ExecutionStatus run(Environment env, Supplier<Boolean> stopSignal, EventSink sink) {
+        return run(env, stopSignal, sink, ExecutionBudget.DEFAULT);
+    }
+
+    /** Like {@link #run(Environment, Supplier, EventSink)}, within the given limits. */
+    public ExecutionStatus run(Environment env, Supplier<Boolean> stopSignal, EventSink sink, ExecutionBudget budget) {
+        Machine machine = new Machine(stopSignal, functionCount, budget);
+        machine.begin(main, env);
+        return machine.proceed(Long.MAX_VALUE, sink);
+    }
+
+    /** Prepares a run that is then carried out a slice at a time. */
+    public PausableRun start(Environment env, Supplier<Boolean> stopSignal, ExecutionBudget budget) {
+        Machine machine = new Machine(stopSignal, functionCount, budget);
+        machine.begin(main, env);
+        return new PausableRun(machine, definitions);
+    }
+
+    /**
+     * Picks up a run of this program from a state captured by {@link PausableRun#capture()}.
+     *
+     * @throws IllegalArgumentException if the state was captured from a different program
+     */
+    public PausableRun resume(MachineState state, Environment env, Supplier<Boolean> stopSignal, ExecutionBudget budget) {
+        Machine machine = new Machine(stopSignal, functionCount, budget);
+        machine.restore(state, main, definitions, env);
+        return new PausableRun(machine, definitions);
+    }
+
+    // Collects every event of a run into a list.
+    public List<ExecutionEvent> run(Environment env, Supplier<Boolean> stopSignal) {
+        List<ExecutionEvent> events = new ArrayList<>();
+        run(env, stopSignal, events::add);
+        return events;
+    }
+}
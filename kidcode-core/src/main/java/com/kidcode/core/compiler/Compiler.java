@@ -0,0 +1,295 @@
+package com.kidcode.core.compiler;
+
+import com.kidcode.core.ast.*;
+import com.kidcode.core.builtins.Builtins;
+import com.kidcode.core.builtins.ErrorValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Lowers a parsed program into flat instruction blocks once, so running it no
+ * longer walks the AST through an instanceof chain for every statement.
+ * Control flow becomes jumps, and expressions become pre-resolved closures.
+ */
+public class Compiler {
+    private static final ErrorValue NOT_A_LIST = new ErrorValue("Error: index operator [] cannot be used on non-list type.");
+    private static final ErrorValue NOT_A_NUMBER = new ErrorValue("Error: index must be a number.");
+
+    // Functions are looked up by index at runtime; names are resolved here once.
+    private final Map<String, Integer> functionIds = new HashMap<>();
+    private Resolver resolver;
+    // Slot layout of the block currently being compiled.
+    private Resolver.Layout layout;
+
+    public CompiledProgram compile(List<Statement> program) {
+        resolver = new Resolver(program);
+        CodeBlock main = compileBlock(List.of(), program);
+        return new CompiledProgram(main, functionIds.size());
+    }
+
+    // Mutable state used while emitting a single code block.
+    private static final class BlockBuilder {
+        final List<Instruction> code = new ArrayList<>();
+        final Resolver.Layout layout;
+        int loopSlots = 0;
+
+        BlockBuilder(Resolver.Layout layout) {
+            this.layout = layout;
+        }
+
+        int position() {
+            return code.size();
+        }
+
+        CodeBlock build() {
+            Instruction[] instructions = code.toArray(new Instruction[0]);
+            for (int i = 0; i < instructions.length; i++) {
+                if (instructions[i] instanceof Instructions.Call call && reachesEnd(instructions, i + 1)) {
+                    instructions[i] = new Instructions.Call(call.id(), call.name(), call.arguments(), true);
+                }
+            }
+            return new CodeBlock(instructions, loopSlots, layout);
+        }
+
+        // Whether running from pc can only jump to the end of the block.
+        private static boolean reachesEnd(Instruction[] instructions, int pc) {
+            while (pc < instructions.length && instructions[pc] instanceof Instructions.Jump jump) {
+                pc = jump.target();
+            }
+            return pc == instructions.length;
+        }
+    }
+
+    private CodeBlock compileBlock(List<Identifier> parameters, List<Statement> statements) {
+        Resolver.Layout enclosing = layout;
+        layout = resolver.layout(parameters, statements);
+        BlockBuilder block = new BlockBuilder(layout);
+        compileStatements(statements, block);
+        layout = enclosing;
+        return block.build();
+    }
+
+    private void compileStatements(List<Statement> statements, BlockBuilder block) {
+        for (Statement statement : statements) {
+            compileStatement(statement, block);
+        }
+    }
+
+    private void compileStatement(Statement stmt, BlockBuilder block) {
+        List<Instruction> code = block.code;
+        if (stmt instanceof SetStatement setStmt) {
+            int slot = layout.slot(resolver.symbol(setStmt.name().value()));
+            code.add(new Instructions.Set(slot, compileExpression(setStmt.value())));
+        } else if (stmt instanceof MoveStatement moveStmt) {
+            code.add(new Instructions.Move(compileExpression(moveStmt.steps())));
+        } else if (stmt instanceof TurnStatement turnStmt) {
+            boolean right = turnStmt.direction().equalsIgnoreCase("right");
+            code.add(new Instructions.Turn(right, compileExpression(turnStmt.degrees())));
+        } else if (stmt instanceof PenStatement penStmt) {
+            code.add(new Instructions.Pen(penStmt.state().equalsIgnoreCase("down")));
+        } else if (stmt instanceof SetColorStatement colorStmt) {
+            code.add(new Instructions.SetColor(compileExpression(colorStmt.colorName())));
+        } else if (stmt instanceof SayStatement sayStmt) {
+            code.add(new Instructions.Say(compileExpression(sayStmt.message())));
+        } else if (stmt instanceof RepeatStatement repeatStmt) {
+            compileRepeat(repeatStmt, block);
+        } else if (stmt instanceof IfStatement ifStmt) {
+            compileIf(ifStmt, block);
+        } else if (stmt instanceof FunctionDefinitionStatement funcDefStmt) {
+            CodeBlock body = compileBlock(funcDefStmt.parameters(), funcDefStmt.body());
+            int[] parameterSlots = funcDefStmt.parameters().stream()
+                .mapToInt(parameter -> body.layout().slot(resolver.symbol(parameter.value())))
+                .toArray();
+            CompiledFunction function = new CompiledFunction(funcDefStmt.name().value(), parameterSlots, body);
+            code.add(new Instructions.Define(functionId(function.name()), function));
+        } else if (stmt instanceof FunctionCallStatement funcCallStmt) {
+            String name = funcCallStmt.function().value();
+            code.add(new Instructions.Call(functionId(name), name, compileExpressions(funcCallStmt.arguments()), false));
+        } else if (stmt instanceof ExpressionStatement exprStmt) {
+            code.add(new Instructions.Evaluate(compileExpression(exprStmt.expression())));
+        } else if (stmt instanceof HomeStatement) {
+            code.add(new Instructions.Home());
+        }
+    }
+
+    private void compileRepeat(RepeatStatement repeatStmt, BlockBuilder block) {
+        int slot = block.loopSlots++;
+        int enter = block.position();
+        block.code.add(null); // patched once the exit is known
+        int head = block.position();
+        block.code.add(null);
+        compileStatements(repeatStmt.body(), block);
+        block.code.add(new Instructions.Jump(head));
+        int exit = block.position();
+        block.code.set(enter, new Instructions.RepeatEnter(compileExpression(repeatStmt.times()), slot, exit));
+        block.code.set(head, new Instructions.RepeatTest(slot, exit));
+    }
+
+    private void compileIf(IfStatement ifStmt, BlockBuilder block) {
+        int test = block.position();
+        block.code.add(null); // patched once both branch targets are known
+        compileStatements(ifStmt.consequence(), block);
+        int otherwise = block.position();
+        if (ifStmt.alternative() != null) {
+            int skip = block.position();
+            block.code.add(null);
+            otherwise = block.position();
+            compileStatements(ifStmt.alternative(), block);
+            block.code.set(skip, new Instructions.Jump(block.position()));
+        }
+        int end = block.position();
+        block.code.set(test, new Instructions.If(compileExpression(ifStmt.condition()), otherwise, end));
+    }
+
+    private int functionId(String name) {
+        return functionIds.computeIfAbsent(name, n -> functionIds.size());
+    }
+
+    private CompiledExpression[] compileExpressions(List<Expression> expressions) {
+        CompiledExpression[] compiled = new CompiledExpression[expressions.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = compileExpression(expressions.get(i));
+        }
+        return compiled;
+    }
+
+    private Variable variable(Identifier id) {
+        int symbol = resolver.symbol(id.value());
+        return new Variable(id.value(), symbol, layout.slot(symbol));
+    }
+
+    private CompiledExpression compileExpression(Expression expr) {
+        if (expr instanceof IntegerLiteral i) {
+            return new IntExpression.Constant(i.value());
+        }
+        if (expr instanceof StringLiteral s) {
+            String value = s.value();
+            return frame -> value;
+        }
+        if (expr instanceof FunctionCallExpression funcCall) {
+            return compileFunctionCall(funcCall);
+        }
+        if (expr instanceof Identifier id) {
+            return new IntExpression.Read(variable(id), notFoundError(id.value()));
+        }
+        if (expr instanceof InfixExpression infix) {
+            return compileInfix(infix);
+        }
+        if (expr instanceof ListLiteral listLiteral) {
+            CompiledExpression[] elements = compileExpressions(listLiteral.elements());
+            return frame -> {
+                List<Object> list = new ArrayList<>(elements.length);
+                for (CompiledExpression element : elements) {
+                    Object evaluated = element.evaluate(frame);
+                    if (evaluated instanceof ErrorValue) return evaluated;
+                    list.add(evaluated);
+                }
+                return list;
+            };
+        }
+        if (expr instanceof IndexExpression indexExpr) {
+            return compileIndex(indexExpr);
+        }
+        ErrorValue unsupported = new ErrorValue("Error: Cannot evaluate expression");
+        return frame -> unsupported;
+    }
+
+    private CompiledExpression compileFunctionCall(FunctionCallExpression funcCall) {
+        String name = funcCall.function().value();
+        Function<List<Object>, Object> builtin = Builtins.lookup(name);
+        if (builtin == null) {
+            // User-defined functions that return values are not yet supported
+            ErrorValue notDefined = new ErrorValue("Error: function '" + name + "' is not defined.");
+            return frame -> notDefined;
+        }
+        CompiledExpression[] arguments = compileExpressions(funcCall.arguments());
+        return frame -> {
+            List<Object> args = new ArrayList<>(arguments.length);
+            for (CompiledExpression argument : arguments) {
+                Object evaluated = argument.evaluate(frame);
+                if (evaluated instanceof ErrorValue) return evaluated;
+                args.add(evaluated);
+            }
+            return builtin.apply(args);
+        };
+    }
+
+    private CompiledExpression compileInfix(InfixExpression infix) {
+        Object constant = constantValue(infix);
+        if (constant instanceof Integer value) {
+            return new IntExpression.Constant(value);
+        }
+        if (constant != null) {
+            return frame -> constant;
+        }
+        InfixOperation operation = new InfixOperation(infix.operator());
+        CompiledExpression left = compileExpression(infix.left());
+        CompiledExpression right = compileExpression(infix.right());
+        CompiledExpression boxed = frame -> {
+            Object l = left.evaluate(frame);
+            if (l instanceof ErrorValue) return l;
+            Object r = right.evaluate(frame);
+            if (r instanceof ErrorValue) return r;
+            return operation.apply(l, r);
+        };
+        // Arithmetic on numbers and variables is tried on plain ints first; see IntExpression.
+        if (left instanceof IntExpression l && right instanceof IntExpression r) {
+            if (operation.isArithmetic()) {
+                return new IntExpression.Arithmetic(operation, l, r, boxed);
+            }
+            if (operation.isComparison()) {
+                return IntExpression.comparison(operation, l, r, boxed);
+            }
+        }
+        return boxed;
+    }
+
+    // The value of an expression made only of literals, worked out once here; null
+    // if it depends on anything else. Errors fold too, and are reported when run.
+    private static Object constantValue(Expression expr) {
+        if (expr instanceof IntegerLiteral i) {
+            return i.value();
+        }
+        if (expr instanceof StringLiteral s) {
+            return s.value();
+        }
+        if (expr instanceof InfixExpression infix) {
+            Object l = constantValue(infix.left());
+            if (l == null || l instanceof ErrorValue) return l;
+            Object r = constantValue(infix.right());
+            if (r == null || r instanceof ErrorValue) return r;
+            return new InfixOperation(infix.operator()).apply(l, r);
+        }
+        return null;
+    }
+
+    private static ErrorValue notFoundError(String name) {
+        return new ErrorValue("Error: variable '" + name + "' not found.");
+    }
+
+    private CompiledExpression compileIndex(IndexExpression indexExpr) {
+        CompiledExpression left = compileExpression(indexExpr.left());
+        CompiledExpression index = compileExpression(indexExpr.index());
+        return frame -> {
+            Object target = left.evaluate(frame);
+            if (target instanceof ErrorValue) return target;
+            int idx = Values.intValue(index, frame);
+            if (frame.intMiss) {
+                Object position = frame.takeNotAnInt();
+                if (position instanceof ErrorValue) return position;
+                return target instanceof List<?> ? NOT_A_NUMBER : NOT_A_LIST;
+            }
+            if (!(target instanceof List<?> list)) {
+                return NOT_A_LIST;
+            }
+            if (idx < 0 || idx >= list.size()) {
+                return new ErrorValue("Error: index " + idx + " out of bounds for list of size " + list.size() + ".");
+            }
+            return list.get(idx);
+        };
+    }
+}
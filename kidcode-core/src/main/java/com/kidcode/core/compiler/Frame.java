@@ -0,0 +1,135 @@
+package com.kidcode.core.compiler;
+
+import com.kidcode.core.evaluator.Environment;
+
+import java.util.Arrays;
+
+// The activation of one code block: where we are in it, its variables and the
+// counters of any 'repeat' loops currently running inside it.
+final class Frame {
+    // Marks a slot whose variable has not been set in this frame (yet).
+    static final Object UNSET = new Object();
+    // Marks a slot holding a number, kept unboxed in ints.
+    static final Object INT = new Object();
+
+    final CodeBlock code;
+    // The function this frame runs, or -1 for the main program.
+    final int function;
+    // The calling frame, which is also the enclosing scope. Links pooled frames in Machine.
+    Frame parent;
+    // Shared by every frame of a run; holds Cody's state.
+    final Environment env;
+    final Object[] slots;
+    int[] ints; // allocated by the first setInt
+    final int[] loops;
+    int pc = 0;
+    // Set when an IntExpression meets an operand that isn't a number; see Values.intValue.
+    boolean intMiss;
+    // What Values.intValue found instead of a number.
+    private Object notAnInt;
+
+    Frame(CodeBlock code, int function, Frame parent, Environment env) {
+        this.code = code;
+        this.function = function;
+        this.parent = parent;
+        this.env = env;
+        this.slots = new Object[code.layout().slotCount()];
+        Arrays.fill(slots, UNSET);
+        this.loops = new int[code.loopSlots()];
+    }
+
+    // Readies a finished frame for another call of the same block.
+    void reuse(Frame caller) {
+        parent = caller;
+        pc = 0;
+        Arrays.fill(slots, UNSET);
+    }
+
+    // Slot values for a MachineState, boxing unboxed numbers; unassigned slots are null.
+    Object[] values() {
+        Object[] values = new Object[slots.length];
+        for (int slot = 0; slot < slots.length; slot++) {
+            values[slot] = slots[slot] == UNSET ? null : get(slot);
+        }
+        return values;
+    }
+
+    boolean[] assigned() {
+        boolean[] assigned = new boolean[slots.length];
+        for (int slot = 0; slot < slots.length; slot++) {
+            assigned[slot] = slots[slot] != UNSET;
+        }
+        return assigned;
+    }
+
+    // Takes the position and variables saved by values() and assigned().
+    void restore(MachineState.FrameState saved) {
+        if (saved.pc() < 0 || saved.pc() > code.instructions().length
+                || saved.loops().length != loops.length
+                || saved.assigned().length != slots.length || saved.values().length != slots.length) {
+            throw new IllegalArgumentException("Snapshot does not match the program");
+        }
+        pc = saved.pc();
+        System.arraycopy(saved.loops(), 0, loops, 0, loops.length);
+        for (int slot = 0; slot < slots.length; slot++) {
+            if (!saved.assigned()[slot]) {
+                continue;
+            }
+            if (saved.values()[slot] instanceof Integer number) {
+                setInt(slot, number);
+            } else {
+                slots[slot] = saved.values()[slot];
+            }
+        }
+    }
+
+    void setInt(int slot, int value) {
+        if (ints == null) {
+            ints = new int[slots.length];
+        }
+        slots[slot] = INT;
+        ints[slot] = value;
+    }
+
+    // The value of a slot that is set, boxing it if it is an unboxed number.
+    Object get(int slot) {
+        Object value = slots[slot];
+        return value == INT ? Integer.valueOf(ints[slot]) : value;
+    }
+
+    void missInt(Object value) {
+        notAnInt = value;
+        intMiss = true;
+    }
+
+    // Clears a miss reported by Values.intValue and returns the value it found.
+    Object takeNotAnInt() {
+        Object value = notAnInt;
+        notAnInt = null;
+        intMiss = false;
+        return value;
+    }
+
+    // Searches the enclosing scopes, starting with the caller.
+    Object lookupOuter(int symbol, String name) {
+        for (Frame scope = parent; scope != null; scope = scope.parent) {
+            int slot = scope.code.layout().slot(symbol);
+            if (slot >= 0 && scope.slots[slot] != UNSET) {
+                return scope.get(slot);
+            }
+        }
+        // Variables the host put in the global Environment before the run.
+        return env.get(name);
+    }
+
+    // Like lookupOuter, for a read that wants a number; sets intMiss otherwise.
+    int lookupOuterInt(int symbol, String name) {
+        for (Frame scope = parent; scope != null; scope = scope.parent) {
+            int slot = scope.code.layout().slot(symbol);
+            if (slot >= 0 && scope.slots[slot] != UNSET) {
+                return scope.slots[slot] == INT ? scope.ints[slot] : Values.toInt(scope.slots[slot], this);
+            }
+        }
+        return Values.toInt(env.get(name), this);
+    }
+}
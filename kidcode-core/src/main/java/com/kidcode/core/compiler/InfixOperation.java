@@ -0,0 +1,96 @@
+package com.kidcode.core.compiler;
+
+import com.kidcode.core.builtins.ErrorValue;
+
+// The operator of an InfixExpression, resolved once at compile time. Applying
+// it switches on a small opcode instead of re-matching the operator string.
+final class InfixOperation {
+    private static final int ADD = 0, SUBTRACT = 1, MULTIPLY = 2, DIVIDE = 3,
+        EQUAL = 4, NOT_EQUAL = 5, GREATER = 6, LESS = 7, UNKNOWN = -1;
+
+    private final int opcode;
+    private final boolean concatenates;
+    private static final ErrorValue DIVISION_BY_ZERO = new ErrorValue("Error: Division by zero");
+
+    private final ErrorValue stringError;
+    private final ErrorValue typeError;
+    private final ErrorValue unknownError;
+
+    InfixOperation(String operator) {
+        this.opcode = switch (operator) {
+            case "+" -> ADD;
+            case "-" -> SUBTRACT;
+            case "*" -> MULTIPLY;
+            case "/" -> DIVIDE;
+            case "==" -> EQUAL;
+            case "!=" -> NOT_EQUAL;
+            case ">" -> GREATER;
+            case "<" -> LESS;
+            default -> UNKNOWN;
+        };
+        this.concatenates = "+".equals(operator);
+        this.stringError = new ErrorValue("Error: Cannot use '" + operator + "' with a string.");
+        this.typeError = new ErrorValue("Error: Cannot perform operation '" + operator + "' on these types.");
+        this.unknownError = new ErrorValue("Error: Unknown operator '" + operator + "' for numbers.");
+    }
+
+    Object apply(Object left, Object right) {
+        // If either side is a string, only + (concatenation) is allowed.
+        if (left instanceof String || right instanceof String) {
+            return concatenates ? String.valueOf(left) + String.valueOf(right) : stringError;
+        }
+        if (left instanceof Integer l && right instanceof Integer r) {
+            return applyInt(l, r);
+        }
+        return typeError;
+    }
+
+    // + - * / of two numbers is a number, so it can be evaluated unboxed.
+    boolean isArithmetic() {
+        return opcode >= ADD && opcode <= DIVIDE;
+    }
+
+    boolean isComparison() {
+        return opcode >= EQUAL && opcode <= LESS;
+    }
+
+    // isArithmetic() only. Division by zero is a miss, so the boxed path reports the error.
+    int applyUnboxed(int l, int r, Frame frame) {
+        return switch (opcode) {
+            case ADD -> l + r;
+            case SUBTRACT -> l - r;
+            case MULTIPLY -> l * r;
+            default -> {
+                if (r == 0) {
+                    frame.intMiss = true;
+                    yield 0;
+                }
+                yield l / r;
+            }
+        };
+    }
+
+    // isComparison() only.
+    boolean compareUnboxed(int l, int r) {
+        return switch (opcode) {
+            case EQUAL -> l == r;
+            case NOT_EQUAL -> l != r;
+            case GREATER -> l > r;
+            default -> l < r;
+        };
+    }
+
+    Object applyInt(int l, int r) {
+        return switch (opcode) {
+            case ADD -> l + r;
+            case SUBTRACT -> l - r;
+            case MULTIPLY -> l * r;
+            case DIVIDE -> (r == 0) ? DIVISION_BY_ZERO : l / r;
+            case EQUAL -> l == r;
+            case NOT_EQUAL -> l != r;
+            case GREATER -> l > r;
+            case LESS -> l < r;
+            default -> unknownError;
+        };
+    }
+}
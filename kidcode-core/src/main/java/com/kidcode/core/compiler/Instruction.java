@@ -0,0 +1,7 @@
+package com.kidcode.core.compiler;
+
+// A single step of a compiled code block. Returns the index of the next
+// instruction to run in the same frame.
+interface Instruction {
+    int execute(Machine machine, Frame frame, int pc);
+}
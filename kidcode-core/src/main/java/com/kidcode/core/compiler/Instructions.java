@@ -0,0 +1,271 @@
+package com.kidcode.core.compiler;
+
+import com.kidcode.core.builtins.Builtins;
+import com.kidcode.core.builtins.ErrorValue;
+import com.kidcode.core.evaluator.TurtleGeometry;
+import com.kidcode.core.evaluator.TurtleState;
+import com.kidcode.core.event.ExecutionEvent;
+
+import java.util.Arrays;
+
+// The instruction set produced by the Compiler. Every statement starts with an
+// instruction that calls Machine.enterStatement(), which counts it against the
+// budget; loop heads and calls also call Machine.outOfBudget(), which polls the
+// stop signal and the clock.
+final class Instructions {
+
+    private Instructions() {}
+
+    // Evaluates the value in frame and stores it in a slot of target, unboxed if it
+    // is a number. An error is returned instead of being stored.
+    private static ErrorValue assign(CompiledExpression value, Frame frame, Frame target, int slot) {
+        int number = Values.intValue(value, frame);
+        if (!frame.intMiss) {
+            target.setInt(slot, number);
+            return null;
+        }
+        Object result = frame.takeNotAnInt();
+        if (result instanceof ErrorValue error) {
+            return error;
+        }
+        target.slots[slot] = result;
+        return null;
+    }
+
+    record Set(int slot, CompiledExpression value) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (!machine.enterStatement()) return pc + 1;
+            ErrorValue error = assign(value, frame, frame, slot);
+            if (error != null) {
+                machine.emit(new ExecutionEvent.ErrorEvent(error.message()));
+            }
+            return pc + 1;
+        }
+    }
+
+    record Move(CompiledExpression steps) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (!machine.enterStatement()) return pc + 1;
+            int count = Values.intValue(steps, frame);
+            if (frame.intMiss) {
+                machine.emit(new ExecutionEvent.SayEvent("Error: 'move forward' requires a number. Got: " + frame.takeNotAnInt()));
+                return pc + 1;
+            }
+            TurtleState turtle = frame.env.turtle();
+            int oldX = turtle.getX();
+            int oldY = turtle.getY();
+            turtle.moveForward(count);
+            machine.emitMove(oldX, oldY, turtle.getX(), turtle.getY(), turtle, turtle.isPenDown());
+            return pc + 1;
+        }
+    }
+
+    record Turn(boolean right, CompiledExpression degrees) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (!machine.enterStatement()) return pc + 1;
+            int amount = Values.intValue(degrees, frame);
+            if (frame.intMiss) {
+                machine.emit(new ExecutionEvent.SayEvent("Error: 'turn' requires a number. Got: " + frame.takeNotAnInt()));
+                return pc + 1;
+            }
+            TurtleState turtle = frame.env.turtle();
+            if (right) {
+                turtle.setDirection(TurtleGeometry.turnRight(turtle.getDirection(), amount));
+            } else {
+                turtle.setDirection(TurtleGeometry.turnLeft(turtle.getDirection(), amount));
+            }
+            machine.emitPosition(turtle);
+            return pc + 1;
+        }
+    }
+
+    record Pen(boolean down) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (!machine.enterStatement()) return pc + 1;
+            TurtleState turtle = frame.env.turtle();
+            turtle.setPenDown(down);
+            machine.emitPosition(turtle);
+            return pc + 1;
+        }
+    }
+
+    record SetColor(CompiledExpression colorName) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (!machine.enterStatement()) return pc + 1;
+            Object colorVal = colorName.evaluate(frame);
+            if (!(colorVal instanceof String name)) {
+                machine.emit(new ExecutionEvent.SayEvent("Error: 'color' requires a string color name."));
+                return pc + 1;
+            }
+            if (!Builtins.isSupportedColor(name)) {
+                machine.emit(new ExecutionEvent.SayEvent("Error: Unknown color '" + name + "'."));
+                return pc + 1;
+            }
+            TurtleState turtle = frame.env.turtle();
+            turtle.setPenColor(name.toLowerCase());
+            machine.emitPosition(turtle);
+            return pc + 1;
+        }
+    }
+
+    record Say(CompiledExpression message) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (!machine.enterStatement()) return pc + 1;
+            Object messageObj = message.evaluate(frame);
+            if (messageObj instanceof ErrorValue error) {
+                machine.emit(new ExecutionEvent.ErrorEvent(error.message()));
+            } else {
+                machine.emit(new ExecutionEvent.SayEvent(String.valueOf(messageObj)));
+            }
+            return pc + 1;
+        }
+    }
+
+    record Home() implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (!machine.enterStatement()) return pc + 1;
+            TurtleState turtle = frame.env.turtle();
+            int oldX = turtle.getX();
+            int oldY = turtle.getY();
+            turtle.setPosition(250, 250);
+            // The pen is reported as up so the jump home doesn't draw a line.
+            machine.emitMove(oldX, oldY, 250, 250, turtle, false);
+            return pc + 1;
+        }
+    }
+
+    record Evaluate(CompiledExpression expression) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (!machine.enterStatement()) return pc + 1;
+            expression.evaluate(frame);
+            return pc + 1;
+        }
+    }
+
+    // Evaluates the repeat count once and parks it in a loop slot of the frame.
+    record RepeatEnter(CompiledExpression times, int slot, int exit) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (!machine.enterStatement()) return exit;
+            int count = Values.intValue(times, frame);
+            if (frame.intMiss) {
+                frame.takeNotAnInt();
+                machine.emit(new ExecutionEvent.SayEvent("Error: 'repeat' requires a number."));
+                return exit;
+            }
+            frame.loops[slot] = count;
+            return pc + 1;
+        }
+    }
+
+    // The loop head; the body's trailing Jump comes back here.
+    record RepeatTest(int slot, int exit) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (frame.loops[slot] <= 0 || machine.outOfBudget()) return exit;
+            frame.loops[slot]--;
+            return pc + 1;
+        }
+    }
+
+    record If(CompiledExpression condition, int otherwise, int end) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (!machine.enterStatement()) return end;
+            Object cond = condition.evaluate(frame);
+            if (cond instanceof ErrorValue error) {
+                machine.emit(new ExecutionEvent.SayEvent(error.message()));
+                return end;
+            }
+            return Values.isTruthy(cond) ? pc + 1 : otherwise;
+        }
+    }
+
+    record Jump(int target) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            return target;
+        }
+    }
+
+    record Define(int id, CompiledFunction function) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (!machine.enterStatement()) return pc + 1;
+            machine.functions[id] = function;
+            return pc + 1;
+        }
+    }
+
+    // A tail call is the last thing its block does: nothing but jumps follow it.
+    record Call(int id, String name, CompiledExpression[] arguments, boolean tail) implements Instruction {
+        @Override
+        public int execute(Machine machine, Frame frame, int pc) {
+            if (!machine.enterStatement() || machine.outOfBudget()) return pc + 1;
+            CompiledFunction function = machine.functions[id];
+            if (function == null) {
+                machine.emit(new ExecutionEvent.SayEvent("Error: function '" + name + "' not defined."));
+                return pc + 1;
+            }
+            int[] parameterSlots = function.parameterSlots();
+            if (parameterSlots.length != arguments.length) {
+                machine.emit(new ExecutionEvent.SayEvent("Error: function '" + name + "' expects " + parameterSlots.length + " arguments, got " + arguments.length + "."));
+                return pc + 1;
+            }
+            if (tail && function.body() == frame.code) {
+                return restart(machine, frame, parameterSlots, pc);
+            }
+            Frame callee = machine.newFrame(id, function.body(), frame);
+            for (int i = 0; i < parameterSlots.length; i++) {
+                ErrorValue error = assign(arguments[i], frame, callee, parameterSlots[i]);
+                if (error != null) {
+                    machine.emit(new ExecutionEvent.SayEvent(error.message()));
+                    return pc + 1;
+                }
+            }
+            machine.call(callee);
+            return pc + 1;
+        }
+
+        // A function calling itself in tail position starts over in its own frame with
+        // the new arguments instead of stacking another frame. The variables it leaves
+        // behind are exactly what the new call would have found in its caller.
+        private int restart(Machine machine, Frame frame, int[] parameterSlots, int pc) {
+            machine.reserveArguments(arguments.length);
+            Object[] values = machine.pendingValues;
+            int[] ints = machine.pendingInts;
+            for (int i = 0; i < arguments.length; i++) {
+                int number = Values.intValue(arguments[i], frame);
+                if (!frame.intMiss) {
+                    values[i] = Frame.INT;
+                    ints[i] = number;
+                    continue;
+                }
+                Object result = frame.takeNotAnInt();
+                if (result instanceof ErrorValue error) {
+                    Arrays.fill(values, 0, i, null);
+                    machine.emit(new ExecutionEvent.SayEvent(error.message()));
+                    return pc + 1;
+                }
+                values[i] = result;
+            }
+            for (int i = 0; i < parameterSlots.length; i++) {
+                if (values[i] == Frame.INT) {
+                    frame.setInt(parameterSlots[i], ints[i]);
+                } else {
+                    frame.slots[parameterSlots[i]] = values[i];
+                }
+                values[i] = null;
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.kidcode.core.compiler;
+
+import com.kidcode.core.builtins.ErrorValue;
+
+/**
+ * An expression made of numbers, variables and + - * /, which usually produces a
+ * number. The Compiler builds these so arithmetic in loops can run on plain ints:
+ * {@link #evaluateInt} works without boxing and, when an operand turns out not to
+ * be a number (a string being concatenated, an unset variable) or on division by
+ * zero, sets {@code frame.intMiss} so the caller can redo it with
+ * {@link #evaluateBoxed}, which gives the usual results and errors. Re-evaluating
+ * is safe because these expressions never call functions.
+ */
+abstract class IntExpression implements CompiledExpression {
+
+    abstract int evaluateInt(Frame frame);
+
+    abstract Object evaluateBoxed(Frame frame);
+
+    @Override
+    public Object evaluate(Frame frame) {
+        return evaluateBoxed(frame);
+    }
+
+    static final class Constant extends IntExpression {
+        private final int value;
+        private final Integer boxed; // boxed once, here
+
+        Constant(int value) {
+            this.value = value;
+            this.boxed = value;
+        }
+
+        @Override
+        int evaluateInt(Frame frame) {
+            return value;
+        }
+
+        @Override
+        Object evaluateBoxed(Frame frame) {
+            return boxed;
+        }
+    }
+
+    static final class Read extends IntExpression {
+        private final Variable variable;
+        private final ErrorValue notFound;
+
+        Read(Variable variable, ErrorValue notFound) {
+            this.variable = variable;
+            this.notFound = notFound;
+        }
+
+        @Override
+        int evaluateInt(Frame frame) {
+            return variable.readInt(frame);
+        }
+
+        @Override
+        Object evaluateBoxed(Frame frame) {
+            Object value = variable.read(frame);
+            return value == null ? notFound : value;
+        }
+    }
+
+    static final class Arithmetic extends IntExpression {
+        private final InfixOperation operation;
+        private final IntExpression left;
+        private final IntExpression right;
+        private final CompiledExpression boxed;
+
+        Arithmetic(InfixOperation operation, IntExpression left, IntExpression right, CompiledExpression boxed) {
+            this.operation = operation;
+            this.left = left;
+            this.right = right;
+            this.boxed = boxed;
+        }
+
+        @Override
+        int evaluateInt(Frame frame) {
+            // After a miss the result is discarded, so there is no need to stop early.
+            return operation.applyUnboxed(left.evaluateInt(frame), right.evaluateInt(frame), frame);
+        }
+
+        @Override
+        Object evaluateBoxed(Frame frame) {
+            return boxed.evaluate(frame);
+        }
+
+        // Only the final result is boxed, not every intermediate one.
+        @Override
+        public Object evaluate(Frame frame) {
+            int value = evaluateInt(frame);
+            if (!frame.intMiss) {
+                return value;
+            }
+            frame.intMiss = false;
+            return boxed.evaluate(frame);
+        }
+    }
+
+    // ==, !=, < and > of two IntExpressions; the result is one of the two shared Booleans.
+    static CompiledExpression comparison(InfixOperation operation, IntExpression left, IntExpression right,
+                                         CompiledExpression boxed) {
+        return frame -> {
+            boolean result = operation.compareUnboxed(left.evaluateInt(frame), right.evaluateInt(frame));
+            if (!frame.intMiss) {
+                return result;
+            }
+            frame.intMiss = false;
+            return boxed.evaluate(frame);
+        };
+    }
+}
@@ -0,0 +1,301 @@
+package com.kidcode.core.compiler;
+
+import com.kidcode.core.ExecutionBudget;
+import com.kidcode.core.ExecutionStatus;
+import com.kidcode.core.evaluator.Environment;
+import com.kidcode.core.evaluator.TurtleState;
+import com.kidcode.core.event.EventSink;
+import com.kidcode.core.event.ExecutionEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Runs compiled code blocks. Function calls switch to a new Frame linked to its
+// caller instead of recursing on the Java stack, so the dispatch loop below is
+// the only place instructions are executed from.
+final class Machine {
+    private final Supplier<Boolean> stopSignal;
+    private EventSink sink; // the current slice's
+    // The innermost frame; its parent chain is the call stack. Null once the program has ended.
+    private Frame current;
+    // Functions are defined at runtime by 'define', so each run gets its own table.
+    final CompiledFunction[] functions;
+    // Finished frames of each function, kept for its next call and linked through
+    // Frame.parent, so a recursive drawing allocates frames only as deep as it goes.
+    private final Frame[] freeFrames;
+    // A tail call's arguments, held until all of them are evaluated; see Instructions.Call.
+    Object[] pendingValues = new Object[0];
+    int[] pendingInts = new int[0];
+    private final long maxInstructions;
+    private final long maxEvents;
+    private final Duration maxTime; // per slice; null if untimed
+    private long deadline; // System.nanoTime() value, if timed
+    private long instructionCount = 0;
+    private long eventCount = 0;
+    // The statement count at which the stop signal and clock are next read.
+    private long nextCheck = 0;
+    // Budget checks since the last read. An empty loop body runs no statements,
+    // so its iterations must count toward the next read on their own.
+    private int uncheckedLoops = 0;
+    // The statement count that ends the current slice.
+    private long pauseAt = Long.MAX_VALUE;
+    private boolean started = false;
+    // True while a slice runs; cleared when the run ends or the slice is used up.
+    private boolean running = false;
+    // Why the run ended early, or null while it hasn't.
+    private ExecutionStatus halted;
+
+    Machine(Supplier<Boolean> stopSignal, int functionCount, ExecutionBudget budget) {
+        this.stopSignal = stopSignal;
+        this.functions = new CompiledFunction[functionCount];
+        this.freeFrames = new Frame[functionCount];
+        this.maxInstructions = budget.maxInstructions();
+        this.maxEvents = budget.maxEvents();
+        this.maxTime = budget.maxTime();
+    }
+
+    void begin(CodeBlock main, Environment env) {
+        current = new Frame(main, -1, null, env);
+    }
+
+    /**
+     * Runs until the program ends, or pauses once the given number of further
+     * statements (at least one) have run.
+     *
+     * @return {@link ExecutionStatus#PAUSED} if there is more to run, otherwise how the run ended
+     */
+    ExecutionStatus proceed(long statements, EventSink sink) {
+        this.sink = sink;
+        if (status() != ExecutionStatus.PAUSED) {
+            return status();
+        }
+        pauseAt = statements > Long.MAX_VALUE - instructionCount ? Long.MAX_VALUE : instructionCount + statements;
+        if (maxTime != null) {
+            deadline = System.nanoTime() + maxTime.toNanos();
+        }
+        running = true;
+        if (!started) {
+            started = true;
+            emit(new ExecutionEvent.ClearEvent());
+            emitPosition(current.env.turtle());
+        }
+        nextCheck = instructionCount;
+        outOfBudget();
+        while (running) {
+            Frame frame = current;
+            Instruction[] code = frame.code.instructions();
+            int pc = frame.pc;
+            // Stay in this frame until it finishes or calls into another one.
+            while (pc < code.length && current == frame && running) {
+                pc = code[pc].execute(this, frame, pc);
+            }
+            frame.pc = pc;
+            if (current == frame && pc >= code.length) {
+                if (frame.parent == null) {
+                    current = null;
+                    break;
+                }
+                current = frame.parent;
+                frame.parent = freeFrames[frame.function];
+                freeFrames[frame.function] = frame;
+            }
+        }
+        running = false;
+        return status();
+    }
+
+    ExecutionStatus status() {
+        if (halted != null) {
+            return halted;
+        }
+        return current == null ? ExecutionStatus.COMPLETED : ExecutionStatus.PAUSED;
+    }
+
+    /**
+     * Called at the start of every statement; counts it against the budget.
+     *
+     * @return false if the statement must be skipped
+     */
+    boolean enterStatement() {
+        if (halted != null) {
+            return false;
+        }
+        if (++instructionCount > maxInstructions) {
+            halt(ExecutionStatus.INSTRUCTION_LIMIT, "Execution timed out! Possible infinite loop.");
+            return false;
+        }
+        if (instructionCount >= pauseAt) {
+            running = false; // after this statement
+        }
+        return true;
+    }
+
+    /**
+     * Called where a run can keep going indefinitely: at loop heads and calls.
+     * Reads the stop signal and the clock, but only once every
+     * {@link ExecutionBudget#CHECK_INTERVAL} statements or calls of this method,
+     * whichever comes first.
+     *
+     * @return true if the run has ended and the loop or call must not go on
+     */
+    boolean outOfBudget() {
+        if ((instructionCount >= nextCheck || ++uncheckedLoops >= ExecutionBudget.CHECK_INTERVAL) && halted == null) {
+            nextCheck = instructionCount + ExecutionBudget.CHECK_INTERVAL;
+            uncheckedLoops = 0;
+            if (stopSignal.get()) {
+                halted = ExecutionStatus.STOPPED;
+                running = false;
+            } else if (maxTime != null && System.nanoTime() - deadline > 0) {
+                halt(ExecutionStatus.TIME_LIMIT, "Execution stopped: it ran longer than its time limit.");
+            }
+        }
+        return halted != null;
+    }
+
+    // Ends the run with an error; later statements are skipped.
+    private void halt(ExecutionStatus status, String message) {
+        halted = status;
+        running = false;
+        sink.accept(new ExecutionEvent.ErrorEvent(message));
+    }
+
+    // Counts an event against the budget; false if it must not be sent.
+    private boolean admitEvent() {
+        if (halted != null) {
+            return false;
+        }
+        if (eventCount >= maxEvents) {
+            halt(ExecutionStatus.EVENT_LIMIT, "Execution stopped: it produced more than " + maxEvents + " events.");
+            return false;
+        }
+        eventCount++;
+        return true;
+    }
+
+    // A frame for a call of the given function from caller, reusing a finished one if it can.
+    Frame newFrame(int function, CodeBlock body, Frame caller) {
+        Frame frame = freeFrames[function];
+        if (frame == null || frame.code != body) {
+            // A redefinition leaves frames of the old body in the pool; they just go unused.
+            return new Frame(body, function, caller, caller.env);
+        }
+        freeFrames[function] = frame.parent;
+        frame.reuse(caller);
+        return frame;
+    }
+
+    void call(Frame callee) {
+        current = callee;
+    }
+
+    void reserveArguments(int count) {
+        if (pendingValues.length < count) {
+            pendingValues = new Object[count];
+            pendingInts = new int[count];
+        }
+    }
+
+    void emit(ExecutionEvent event) {
+        if (admitEvent()) {
+            sink.accept(event);
+        }
+    }
+
+    // Moves go through EventSink.move so primitive sinks never see a MoveEvent object.
+    void emitMove(int fromX, int fromY, int toX, int toY, TurtleState turtle, boolean penDown) {
+        if (admitEvent()) {
+            sink.move(fromX, fromY, toX, toY, turtle.getDirection(), penDown, turtle.getPenColor());
+        }
+    }
+
+    void emitPosition(TurtleState turtle) {
+        emitMove(turtle.getX(), turtle.getY(), turtle.getX(), turtle.getY(), turtle, turtle.isPenDown());
+    }
+
+    /** The state of a paused run. Definitions are the program's, in source order. */
+    MachineState capture(List<Instructions.Define> definitions) {
+        if (!started) {
+            throw new IllegalStateException("Only a run that has started can be captured");
+        }
+        Map<CompiledFunction, Integer> definitionIndex = new IdentityHashMap<>();
+        Map<CodeBlock, Integer> bodyIndex = new IdentityHashMap<>();
+        for (int i = 0; i < definitions.size(); i++) {
+            definitionIndex.put(definitions.get(i).function(), i);
+            bodyIndex.put(definitions.get(i).function().body(), i);
+        }
+        int[] defined = new int[functions.length];
+        for (int id = 0; id < functions.length; id++) {
+            defined[id] = functions[id] == null ? -1 : definitionIndex.get(functions[id]);
+        }
+        List<MachineState.FrameState> frames = new ArrayList<>();
+        for (Frame frame = current; frame != null; frame = frame.parent) {
+            int definition = frame.parent == null ? -1 : bodyIndex.get(frame.code);
+            frames.add(new MachineState.FrameState(definition, frame.pc, frame.loops.clone(), frame.assigned(), frame.values()));
+        }
+        Collections.reverse(frames);
+        TurtleState turtle = current.env.turtle();
+        MachineState.Turtle cody = new MachineState.Turtle(turtle.getX(), turtle.getY(), turtle.getDirection(),
+                turtle.isPenDown(), turtle.getPenColor());
+        return new MachineState(instructionCount, eventCount, cody, defined, List.copyOf(frames));
+    }
+
+    /**
+     * Puts a new machine in the state of a paused one.
+     *
+     * @throws IllegalArgumentException if the state doesn't fit this program
+     */
+    void restore(MachineState state, CodeBlock main, List<Instructions.Define> definitions, Environment env) {
+        if (state.functions().length != functions.length || state.frames().isEmpty()) {
+            throw new IllegalArgumentException("Snapshot does not match the program");
+        }
+        // Counters from a client must not take back work already done.
+        if (state.instructionCount() < 0 || state.instructionCount() > maxInstructions
+                || state.eventCount() < 0 || state.eventCount() > maxEvents) {
+            throw new IllegalArgumentException("Snapshot is outside the budget");
+        }
+        for (int id = 0; id < functions.length; id++) {
+            int index = state.functions()[id];
+            if (index != -1) {
+                Instructions.Define definition = definition(definitions, index);
+                if (definition.id() != id) {
+                    throw new IllegalArgumentException("Snapshot does not match the program");
+                }
+                functions[id] = definition.function();
+            }
+        }
+        Frame frame = null;
+        for (MachineState.FrameState saved : state.frames()) {
+            if ((frame == null) != (saved.definition() == -1)) {
+                throw new IllegalArgumentException("Snapshot does not match the program");
+            }
+            if (frame == null) {
+                frame = new Frame(main, -1, null, env);
+            } else {
+                Instructions.Define definition = definition(definitions, saved.definition());
+                frame = new Frame(definition.function().body(), definition.id(), frame, env);
+            }
+            frame.restore(saved);
+        }
+        current = frame;
+        started = true;
+        instructionCount = state.instructionCount();
+        eventCount = state.eventCount();
+        TurtleState turtle = env.turtle();
+        turtle.setPosition(state.turtle().x(), state.turtle().y());
+        turtle.setDirection(state.turtle().direction());
+        turtle.setPenDown(state.turtle().penDown());
+        turtle.setPenColor(state.turtle().penColor());
+    }
+
+    private static Instructions.Define definition(List<Instructions.Define> definitions, int index) {
+        if (index < 0 || index >= definitions.size()) {
+            throw new IllegalArgumentException("Snapshot does not match the program");
+        }
+        return definitions.get(index);
+    }
+}
@@ -0,0 +1,26 @@
+package com.kidcode.core.compiler;
+
+import java.util.List;
+
+/**
+ * Everything a paused run needs to carry on: each active call's position and
+ * variables, which functions are defined, Cody's state, and how much of the
+ * budget has been used. Functions are referred to by their index in the
+ * program's definitions, in the order they appear in the source.
+ *
+ * @param functions the definition each function id currently runs, or -1 if not yet defined
+ * @param frames    the call stack, the main program first
+ */
+public record MachineState(long instructionCount, long eventCount, Turtle turtle, int[] functions, List<FrameState> frames) {
+
+    public record Turtle(int x, int y, double direction, boolean penDown, String penColor) {}
+
+    /**
+     * One active call.
+     *
+     * @param definition the definition whose body the frame runs, or -1 for the main program
+     * @param assigned   which slots hold a value; the rest are looked up in the callers
+     * @param values     the slot values: null, Integer, Boolean, String or List
+     */
+    public record FrameState(int definition, int pc, int[] loops, boolean[] assigned, Object[] values) {}
+}
@@ -0,0 +1,47 @@
+package com.kidcode.core.compiler;
+
+import com.kidcode.core.ExecutionStatus;
+import com.kidcode.core.event.EventSink;
+
+import java.util.List;
+
+/**
+ * A run of a {@link CompiledProgram} that goes a slice of statements at a time.
+ * Between slices it is paused, and its state can be captured and resumed later
+ * in another run of the same program. Not thread-safe.
+ */
+public final class PausableRun {
+    private final Machine machine;
+    private final List<Instructions.Define> definitions;
+
+    PausableRun(Machine machine, List<Instructions.Define> definitions) {
+        this.machine = machine;
+        this.definitions = definitions;
+    }
+
+    /**
+     * Runs at most the given number of further statements, pushing their events
+     * to the sink.
+     *
+     * @return {@link ExecutionStatus#PAUSED} if the program has more to run,
+     *         otherwise how the run ended
+     */
+    public ExecutionStatus proceed(long statements, EventSink sink) {
+        if (statements < 1) {
+            throw new IllegalArgumentException("A slice must run at least one statement");
+        }
+        return machine.proceed(statements, sink);
+    }
+
+    public ExecutionStatus status() {
+        return machine.status();
+    }
+
+    /** The state to resume from; only a paused run has one. */
+    public MachineState capture() {
+        if (machine.status() != ExecutionStatus.PAUSED) {
+            throw new IllegalStateException("Only a paused run can be captured, not one that is " + machine.status());
+        }
+        return machine.capture(definitions);
+    }
+}
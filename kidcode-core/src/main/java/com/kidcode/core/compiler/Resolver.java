@@ -0,0 +1,128 @@
+package com.kidcode.core.compiler;
+
+import com.kidcode.core.ast.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves variable names before compilation. Every name used anywhere in the
+ * program gets a symbol number, and every code block gets a slot layout that maps
+ * the symbols it can assign (its parameters and 'set' targets) to array slots.
+ *
+ * KidCode scopes chain to the caller rather than to the definition site, so how
+ * many frames up a free variable lives is only known at runtime. Reads of locals
+ * and top-level globals still resolve to a single array index; anything else walks
+ * the caller frames, which is an array index per frame instead of a hash lookup.
+ */
+final class Resolver {
+    private final Map<String, Integer> symbols = new HashMap<>();
+
+    Resolver(List<Statement> program) {
+        collectStatements(program);
+    }
+
+    int symbolCount() {
+        return symbols.size();
+    }
+
+    int symbol(String name) {
+        return symbols.get(name);
+    }
+
+    // Slot layout of one code block: slotOf[symbol] is the slot index, or -1.
+    record Layout(int[] slotOf, int slotCount) {
+        int slot(int symbol) {
+            return slotOf[symbol];
+        }
+    }
+
+    Layout layout(List<Identifier> parameters, List<Statement> body) {
+        int[] slotOf = new int[symbols.size()];
+        Arrays.fill(slotOf, -1);
+        int[] slotCount = {0};
+        for (Identifier parameter : parameters) {
+            assign(slotOf, slotCount, parameter.value());
+        }
+        collectAssignments(body, slotOf, slotCount);
+        return new Layout(slotOf, slotCount[0]);
+    }
+
+    private void assign(int[] slotOf, int[] slotCount, String name) {
+        int symbol = symbol(name);
+        if (slotOf[symbol] < 0) {
+            slotOf[symbol] = slotCount[0]++;
+        }
+    }
+
+    // Nested 'define' bodies are separate blocks, so they are not descended into.
+    private void collectAssignments(List<Statement> statements, int[] slotOf, int[] slotCount) {
+        for (Statement stmt : statements) {
+            if (stmt instanceof SetStatement setStmt) {
+                assign(slotOf, slotCount, setStmt.name().value());
+            } else if (stmt instanceof RepeatStatement repeatStmt) {
+                collectAssignments(repeatStmt.body(), slotOf, slotCount);
+            } else if (stmt instanceof IfStatement ifStmt) {
+                collectAssignments(ifStmt.consequence(), slotOf, slotCount);
+                if (ifStmt.alternative() != null) {
+                    collectAssignments(ifStmt.alternative(), slotOf, slotCount);
+                }
+            }
+        }
+    }
+
+    private void declare(String name) {
+        symbols.computeIfAbsent(name, n -> symbols.size());
+    }
+
+    private void collectStatements(List<Statement> statements) {
+        for (Statement stmt : statements) {
+            if (stmt instanceof SetStatement setStmt) {
+                declare(setStmt.name().value());
+                collectExpression(setStmt.value());
+            } else if (stmt instanceof MoveStatement moveStmt) {
+                collectExpression(moveStmt.steps());
+            } else if (stmt instanceof TurnStatement turnStmt) {
+                collectExpression(turnStmt.degrees());
+            } else if (stmt instanceof SetColorStatement colorStmt) {
+                collectExpression(colorStmt.colorName());
+            } else if (stmt instanceof SayStatement sayStmt) {
+                collectExpression(sayStmt.message());
+            } else if (stmt instanceof RepeatStatement repeatStmt) {
+                collectExpression(repeatStmt.times());
+                collectStatements(repeatStmt.body());
+            } else if (stmt instanceof IfStatement ifStmt) {
+                collectExpression(ifStmt.condition());
+                collectStatements(ifStmt.consequence());
+                if (ifStmt.alternative() != null) {
+                    collectStatements(ifStmt.alternative());
+                }
+            } else if (stmt instanceof FunctionDefinitionStatement funcDefStmt) {
+                funcDefStmt.parameters().forEach(parameter -> declare(parameter.value()));
+                collectStatements(funcDefStmt.body());
+            } else if (stmt instanceof FunctionCallStatement funcCallStmt) {
+                funcCallStmt.arguments().forEach(this::collectExpression);
+            } else if (stmt instanceof ExpressionStatement exprStmt) {
+                collectExpression(exprStmt.expression());
+            }
+        }
+    }
+
+    private void collectExpression(Expression expr) {
+        if (expr instanceof Identifier id) {
+            declare(id.value());
+        } else if (expr instanceof InfixExpression infix) {
+            collectExpression(infix.left());
+            collectExpression(infix.right());
+        } else if (expr instanceof FunctionCallExpression funcCall) {
+            funcCall.arguments().forEach(this::collectExpression);
+        } else if (expr instanceof ListLiteral listLiteral) {
+            listLiteral.elements().forEach(this::collectExpression);
+        } else if (expr instanceof IndexExpression indexExpr) {
+            collectExpression(indexExpr.left());
+            collectExpression(indexExpr.index());
+        }
+    }
+}
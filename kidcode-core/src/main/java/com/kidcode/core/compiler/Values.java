@@ -0,0 +1,45 @@
+package com.kidcode.core.compiler;
+
+// Small helpers for runtime values shared by compiled expressions and instructions.
+final class Values {
+
+    private Values() {}
+
+    // An Integer as an int; anything else sets frame.intMiss (without recording the value).
+    static int toInt(Object value, Frame frame) {
+        if (value instanceof Integer i) {
+            return i;
+        }
+        frame.intMiss = true;
+        return 0;
+    }
+
+    /**
+     * Evaluates an expression that should produce a number, without boxing it when
+     * it is an IntExpression. If the value is not a number, returns 0 with
+     * frame.intMiss set; the caller then gets the value (an error, a string...)
+     * from frame.takeNotAnInt(), which also clears the miss.
+     */
+    static int intValue(CompiledExpression expression, Frame frame) {
+        Object value;
+        if (expression instanceof IntExpression ints) {
+            int result = ints.evaluateInt(frame);
+            if (!frame.intMiss) {
+                return result;
+            }
+            frame.intMiss = false;
+            value = ints.evaluateBoxed(frame);
+        } else {
+            value = expression.evaluate(frame);
+        }
+        if (value instanceof Integer i) {
+            return i;
+        }
+        frame.missInt(value);
+        return 0;
+    }
+
+    static boolean isTruthy(Object obj) {
+        return (obj instanceof Boolean b && b) || (obj instanceof Integer i && i != 0);
+    }
+}
@@ -0,0 +1,34 @@
+package com.kidcode.core.compiler;
+
+// A resolved variable read. Locals of the reading block are a single array
+// access; anything else falls back to the enclosing scopes by symbol.
+record Variable(String name, int symbol, int slot) {
+
+    Object read(Frame frame) {
+        if (slot >= 0) {
+            Object value = frame.slots[slot];
+            if (value == Frame.INT) {
+                return frame.ints[slot];
+            }
+            if (value != Frame.UNSET) {
+                return value;
+            }
+        }
+        return frame.lookupOuter(symbol, name);
+    }
+
+    // Reads a variable expected to hold a number; sets frame.intMiss if it doesn't,
+    // or isn't set at all.
+    int readInt(Frame frame) {
+        if (slot >= 0) {
+            Object value = frame.slots[slot];
+            if (value == Frame.INT) {
+                return frame.ints[slot];
+            }
+            if (value != Frame.UNSET) {
+                return Values.toInt(value, frame);
+            }
+        }
+        return frame.lookupOuterInt(symbol, name);
+    }
+}
@@ -6,50 +6,47 @@ import com.kidcode.core.ast.FunctionDefinitionStatement;
 
 // Holds the state of our "Cody" character.
 public class Environment {
-    private int x = 250;
-    private int y = 250;
-    private double direction = 0; // 0=North, 90=East, 180=South, 270=West
+    // Cody's state; every scope of a run points at the same one.
+    private final TurtleState turtle;
 
     // Add a map to store variables
     private final Map<String, Object> store = new HashMap<>();
     
-    // NEW: Function storage
-    private final Map<String, FunctionDefinitionStatement> functions = new HashMap<>();
+    // NEW: Function storage, shared by every scope like the turtle
+    private final Map<String, FunctionDefinitionStatement> functions;
     
     // NEW: Link to the outer scope for lexical scoping
     private final Environment outer;
-    
-    // Add pen state and color tracking
-    private boolean isPenDown = true;
-    private String penColor = "blue";
 
     // Global environment constructor
     public Environment() {
         this.outer = null;
+        this.turtle = new TurtleState();
+        this.functions = new HashMap<>();
     }
 
     // Scoped environment constructor
     public Environment(Environment outer) {
         this.outer = outer;
+        this.turtle = outer.turtle;
+        this.functions = outer.functions;
     }
 
-    // Turtle state should always be controlled by the global environment
-    public int getX() { return (outer != null) ? outer.getX() : x; }
-    public int getY() { return (outer != null) ? outer.getY() : y; }
-    public double getDirection() { return (outer != null) ? outer.getDirection() : direction; }
-
-    public void setPosition(int x, int y) {
-        if (outer != null) outer.setPosition(x, y); else { this.x = x; this.y = y; }
-    }
-
-    public void setDirection(double direction) {
-        if (outer != null) outer.setDirection(direction); else { this.direction = direction; }
-    }
+    // Turtle state is shared with the global environment, so these don't walk the scopes.
+    public TurtleState turtle() { return turtle; }
+    public int getX() { return turtle.getX(); }
+    public int getY() { return turtle.getY(); }
+    public double getDirection() { return turtle.getDirection(); }
+    public void setPosition(int x, int y) { turtle.setPosition(x, y); }
+    public void setDirection(double direction) { turtle.setDirection(direction); }
+    public void moveForward(int steps) { turtle.moveForward(steps); }
 
     // Variable access now respects scope
     public Object get(String name) {
-        if (store.containsKey(name)) {
-            return store.get(name);
+        Object value = store.get(name);
+        // A stored null still shadows outer scopes, so only then check the key.
+        if (value != null || store.containsKey(name)) {
+            return value;
         }
         if (outer != null) {
             return outer.get(name);
@@ -63,32 +60,18 @@ public class Environment {
     
     // Function definitions are global
     public FunctionDefinitionStatement getFunction(String name) {
-        if (functions.containsKey(name)) {
-            return functions.get(name);
-        }
-        if (outer != null) {
-            return outer.getFunction(name);
-        }
-        return null;
+        return functions.get(name);
     }
     
     public void defineFunction(String name, FunctionDefinitionStatement func) {
-        if (outer != null) {
-            outer.defineFunction(name, func);
-        } else {
-            functions.put(name, func);
-        }
+        functions.put(name, func);
     }
     
     // Pen state methods
-    public boolean isPenDown() { return (outer != null) ? outer.isPenDown() : isPenDown; }
-    public void setPenDown(boolean isPenDown) { 
-        if (outer != null) outer.setPenDown(isPenDown); else { this.isPenDown = isPenDown; }
-    }
-    
+    public boolean isPenDown() { return turtle.isPenDown(); }
+    public void setPenDown(boolean isPenDown) { turtle.setPenDown(isPenDown); }
+
     // Color methods
-    public String getPenColor() { return (outer != null) ? outer.getPenColor() : penColor; }
-    public void setPenColor(String penColor) { 
-        if (outer != null) outer.setPenColor(penColor); else { this.penColor = penColor; }
-    }
-} 
\ No newline at end of file
+    public String getPenColor() { return turtle.getPenColor(); }
+    public void setPenColor(String penColor) { turtle.setPenColor(penColor); }
+}
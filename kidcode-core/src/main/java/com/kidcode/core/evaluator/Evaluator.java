@@ -1,7 +1,9 @@
 package com.kidcode.core.evaluator;
 
+import com.kidcode.core.ExecutionBudget;
 import com.kidcode.core.ast.*;
 import com.kidcode.core.builtins.Builtins;
+import com.kidcode.core.builtins.ErrorValue;
 import com.kidcode.core.event.ExecutionEvent;
 
 import java.util.List;
@@ -9,7 +11,7 @@ import java.util.ArrayList;
 import java.util.function.Supplier;
 
 public class Evaluator {
-    private static final int INSTRUCTION_LIMIT = 1_000_000;
+    private static final long INSTRUCTION_LIMIT = ExecutionBudget.DEFAULT.maxInstructions();
     private int instructionCount = 0;
     private final Supplier<Boolean> stopSignal;
     private final List<ExecutionEvent> events = new ArrayList<>();
@@ -37,16 +39,18 @@ public class Evaluator {
     }
 
     private void evaluateStatement(Statement stmt, Environment env) {
-        if (stopSignal.get() || ++instructionCount > INSTRUCTION_LIMIT) {
-            if(instructionCount > INSTRUCTION_LIMIT) {
-                events.add(new ExecutionEvent.ErrorEvent("Execution timed out! Possible infinite loop."));
-            }
+        if (stopSignal.get() || instructionCount > INSTRUCTION_LIMIT) {
+            return;
+        }
+        // Going over the limit ends the run: one error, then every statement is skipped.
+        if (++instructionCount > INSTRUCTION_LIMIT) {
+            events.add(new ExecutionEvent.ErrorEvent("Execution timed out! Possible infinite loop."));
             return;
         }
         if (stmt instanceof SetStatement setStmt) {
             Object value = evaluateExpression(setStmt.value(), env);
             if (isError(value)) {
-                events.add(new ExecutionEvent.ErrorEvent((String) value));
+                events.add(new ExecutionEvent.ErrorEvent(((ErrorValue) value).message()));
             } else {
                 env.set(setStmt.name().value(), value);
             }
@@ -58,10 +62,8 @@ public class Evaluator {
             }
             int oldX = env.getX();
             int oldY = env.getY();
-            int newX = oldX + (int) (steps * Math.sin(Math.toRadians(env.getDirection())));
-            int newY = oldY - (int) (steps * Math.cos(Math.toRadians(env.getDirection())));
-            env.setPosition(newX, newY);
-            events.add(new ExecutionEvent.MoveEvent(oldX, oldY, newX, newY, env.getDirection(), env.isPenDown(), env.getPenColor()));
+            env.moveForward(steps);
+            events.add(new ExecutionEvent.MoveEvent(oldX, oldY, env.getX(), env.getY(), env.getDirection(), env.isPenDown(), env.getPenColor()));
         } else if (stmt instanceof TurnStatement turnStmt) {
             Object degreesVal = evaluateExpression(turnStmt.degrees(), env);
             if (!(degreesVal instanceof Integer degrees)) {
@@ -69,9 +71,9 @@ public class Evaluator {
                 return;
             }
             if (turnStmt.direction().equalsIgnoreCase("right")) {
-                env.setDirection((env.getDirection() + degrees) % 360);
+                env.setDirection(TurtleGeometry.turnRight(env.getDirection(), degrees));
             } else {
-                env.setDirection((env.getDirection() - degrees + 360) % 360);
+                env.setDirection(TurtleGeometry.turnLeft(env.getDirection(), degrees));
             }
             events.add(new ExecutionEvent.MoveEvent(env.getX(), env.getY(), env.getX(), env.getY(), env.getDirection(), env.isPenDown(), env.getPenColor()));
         } else if (stmt instanceof PenStatement penStmt) {
@@ -83,7 +85,7 @@ public class Evaluator {
                 events.add(new ExecutionEvent.SayEvent("Error: 'color' requires a string color name."));
                 return;
             }
-            if (!isSupportedColor(colorName)) {
+            if (!Builtins.isSupportedColor(colorName)) {
                 events.add(new ExecutionEvent.SayEvent("Error: Unknown color '" + colorName + "'."));
                 return;
             }
@@ -92,7 +94,7 @@ public class Evaluator {
         } else if (stmt instanceof SayStatement sayStmt) {
             Object messageObj = evaluateExpression(sayStmt.message(), env);
             if (isError(messageObj)) {
-                events.add(new ExecutionEvent.ErrorEvent((String) messageObj));  // Use ErrorEvent for consistency
+                events.add(new ExecutionEvent.ErrorEvent(((ErrorValue) messageObj).message()));  // Use ErrorEvent for consistency
             } else {
                 events.add(new ExecutionEvent.SayEvent(String.valueOf(messageObj)));
             }
@@ -103,7 +105,7 @@ public class Evaluator {
                 return;
             }
             for (int i = 0; i < times; i++) {
-                if (stopSignal.get()) return;
+                if (stopSignal.get() || instructionCount > INSTRUCTION_LIMIT) return;
                 for (Statement bodyStatement : repeatStmt.body()) {
                     evaluateStatement(bodyStatement, env);
                 }
@@ -111,7 +113,7 @@ public class Evaluator {
         } else if (stmt instanceof IfStatement ifStmt) {
             Object cond = evaluateExpression(ifStmt.condition(), env);
             if (isError(cond)) {
-                events.add(new ExecutionEvent.SayEvent((String) cond));
+                events.add(new ExecutionEvent.SayEvent(((ErrorValue) cond).message()));
                 return;
             }
             boolean condVal = (cond instanceof Boolean b && b) || (cond instanceof Integer i && i != 0);
@@ -141,23 +143,6 @@ public class Evaluator {
         }
     }
 
-    /**
-     * Checks if the given color name is supported by KidCode.
-     * 
-     * @param colorName the color name to check (case-insensitive)
-     * @return true if the color is supported, false otherwise
-     */
-    private boolean isSupportedColor(String colorName) {
-        if (colorName == null) {
-            return false;
-        }
-        return switch (colorName.toLowerCase()) {
-            case "red", "green", "blue", "yellow", "orange", "purple", "black", "white",
-                 "cyan", "magenta", "pink", "brown" -> true;
-            default -> false;
-        };
-    }
-
     Object evaluateExpression(Expression expr, Environment env) {
         if (expr instanceof IntegerLiteral i) {
             return i.value();
@@ -170,12 +155,12 @@ public class Evaluator {
                 return applyBuiltinFunction(funcCall, env);
             }
             // User-defined functions that return values are not yet supported
-            return "Error: function '" + funcCall.function().value() + "' is not defined.";
+            return new ErrorValue("Error: function '" + funcCall.function().value() + "' is not defined.");
         }
         if (expr instanceof Identifier id) {
             Object value = env.get(id.value());
             if (value == null) {
-                return "Error: variable '" + id.value() + "' not found.";
+                return new ErrorValue("Error: variable '" + id.value() + "' not found.");
             }
             return value;
         }
@@ -190,22 +175,22 @@ public class Evaluator {
                 if ("+".equals(infix.operator())) {
                     return String.valueOf(left) + String.valueOf(right);
                 }
-                return "Error: Cannot use '" + infix.operator() + "' with a string.";
+                return new ErrorValue("Error: Cannot use '" + infix.operator() + "' with a string.");
             }
             if (left instanceof Integer l && right instanceof Integer r) {
                 return switch (infix.operator()) {
                     case "+" -> l + r;
                     case "-" -> l - r;
                     case "*" -> l * r;
-                    case "/" -> (r == 0) ? "Error: Division by zero" : l / r;
+                    case "/" -> (r == 0) ? new ErrorValue("Error: Division by zero") : l / r;
                     case "==" -> l.equals(r);
                     case "!=" -> !l.equals(r);
                     case ">" -> l > r;
                     case "<" -> l < r;
-                    default -> "Error: Unknown operator '" + infix.operator() + "' for numbers.";
+                    default -> new ErrorValue("Error: Unknown operator '" + infix.operator() + "' for numbers.");
                 };
             }
-            return "Error: Cannot perform operation '" + infix.operator() + "' on these types.";
+            return new ErrorValue("Error: Cannot perform operation '" + infix.operator() + "' on these types.");
         }
         if (expr instanceof ListLiteral listLiteral) {
             List<Object> elements = new ArrayList<>();
@@ -222,23 +207,23 @@ public class Evaluator {
             Object index = evaluateExpression(indexExpr.index(), env);
             if (isError(index)) return index;
             if (!(left instanceof List)) {
-                return "Error: index operator [] cannot be used on non-list type.";
+                return new ErrorValue("Error: index operator [] cannot be used on non-list type.");
             }
             if (!(index instanceof Integer)) {
-                return "Error: index must be a number.";
+                return new ErrorValue("Error: index must be a number.");
             }
             List<Object> list = (List<Object>) left;
             int idx = (Integer) index;
             if (idx < 0 || idx >= list.size()) {
-                return "Error: index " + idx + " out of bounds for list of size " + list.size() + ".";
+                return new ErrorValue("Error: index " + idx + " out of bounds for list of size " + list.size() + ".");
             }
             return list.get(idx);
         }
-        return "Error: Cannot evaluate expression";
+        return new ErrorValue("Error: Cannot evaluate expression");
     }
     
-    private boolean isError(Object obj) {
-        return obj instanceof String s && s.startsWith("Error:");
+    private static boolean isError(Object obj) {
+        return obj instanceof ErrorValue;
     }
 
     private Object applyBuiltinFunction(FunctionCallExpression call, Environment env) {
@@ -272,7 +257,7 @@ public class Evaluator {
         for (int i = 0; i < paramNames.size(); i++) {
             Object argVal = evaluateExpression(argExprs.get(i), env);
             if (isError(argVal)) {
-                events.add(new ExecutionEvent.SayEvent((String) argVal));
+                events.add(new ExecutionEvent.SayEvent(((ErrorValue) argVal).message()));
                 return;
             }
             localEnv.set(paramNames.get(i), argVal);
@@ -0,0 +1,68 @@
+package com.kidcode.core.evaluator;
+
+/**
+ * The turtle's trigonometry, done without calling Math.sin/cos or taking a
+ * floating-point remainder for every statement.
+ *
+ * Turns are whole degrees, so the direction is always a whole number between
+ * -359 and 359. For those, sin and cos come from tables filled with the very
+ * same Math calls, and turns wrap with integer arithmetic. Anything else (a
+ * direction set from outside) falls back to the original formulas, so results
+ * are identical either way.
+ */
+public final class TurtleGeometry {
+
+    private TurtleGeometry() {}
+
+    // SIN[d + 359] is Math.sin(Math.toRadians(d)) for d in -359..359; likewise COS.
+    private static final double[] SIN = new double[719];
+    private static final double[] COS = new double[719];
+
+    static {
+        for (int d = -359; d <= 359; d++) {
+            SIN[d + 359] = Math.sin(Math.toRadians(d));
+            COS[d + 359] = Math.cos(Math.toRadians(d));
+        }
+    }
+
+    public static double sin(double degrees) {
+        int index = tableIndex(degrees);
+        return index >= 0 ? SIN[index] : Math.sin(Math.toRadians(degrees));
+    }
+
+    public static double cos(double degrees) {
+        int index = tableIndex(degrees);
+        return index >= 0 ? COS[index] : Math.cos(Math.toRadians(degrees));
+    }
+
+    /** {@code (direction + degrees) % 360}. */
+    public static double turnRight(double direction, int degrees) {
+        if (!isWholeDegree(direction)) {
+            return (direction + degrees) % 360;
+        }
+        return wrap((long) direction + degrees);
+    }
+
+    /** {@code (direction - degrees + 360) % 360}. */
+    public static double turnLeft(double direction, int degrees) {
+        if (!isWholeDegree(direction)) {
+            return (direction - degrees + 360) % 360;
+        }
+        return wrap((long) direction - degrees + 360);
+    }
+
+    // Same as the double remainder, which keeps the dividend's sign even when it is 0.
+    private static double wrap(long degrees) {
+        long remainder = degrees % 360;
+        return remainder == 0 && degrees < 0 ? -0.0 : remainder;
+    }
+
+    private static boolean isWholeDegree(double direction) {
+        return direction > -360 && direction < 360 && (int) direction == direction;
+    }
+
+    // Zero is left to Math so that sin(-0.0) keeps its sign.
+    private static int tableIndex(double degrees) {
+        return isWholeDegree(degrees) && degrees != 0 ? (int) degrees + 359 : -1;
+    }
+}
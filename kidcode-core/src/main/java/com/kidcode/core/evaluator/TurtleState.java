@@ -0,0 +1,40 @@
+package com.kidcode.core.evaluator;
+
+// Cody's position, heading and pen. One per run, shared by every scope.
+public final class TurtleState {
+    private int x = 250;
+    private int y = 250;
+    private double direction = 0; // 0=North, 90=East, 180=South, 270=West
+    // Unit step along the direction, updated on each turn rather than each move.
+    private double stepX = 0;
+    private double stepY = 1;
+    private boolean isPenDown = true;
+    private String penColor = "blue";
+
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public double getDirection() { return direction; }
+
+    public void setPosition(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public void setDirection(double direction) {
+        this.direction = direction;
+        this.stepX = TurtleGeometry.sin(direction);
+        this.stepY = TurtleGeometry.cos(direction);
+    }
+
+    // Moves the given number of steps along the current direction.
+    public void moveForward(int steps) {
+        x += (int) (steps * stepX);
+        y -= (int) (steps * stepY);
+    }
+
+    public boolean isPenDown() { return isPenDown; }
+    public void setPenDown(boolean isPenDown) { this.isPenDown = isPenDown; }
+
+    public String getPenColor() { return penColor; }
+    public void setPenColor(String penColor) { this.penColor = penColor; }
+}
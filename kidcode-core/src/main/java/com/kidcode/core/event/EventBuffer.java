@@ -0,0 +1,187 @@
+package com.kidcode.core.event;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Stores execution events as parallel primitive arrays instead of one object per
+ * event. Moves are kept as int coordinates, a double heading and byte pen and
+ * palette codes, so recording a long run allocates only when a chunk fills up.
+ *
+ * Rows live in fixed-size chunks, so growing never copies what is already stored.
+ * {@link #events()} and {@link #replay(EventSink)} turn rows back into
+ * {@link ExecutionEvent}s only when someone asks for them.
+ *
+ * Moves that draw nothing and only report a new pen, color or heading are
+ * collapsed: one that repeats the previous state is dropped, and one that follows
+ * another state-only move at the same spot replaces it. The final drawing and
+ * Cody's final state are unchanged.
+ *
+ * Not thread-safe; fill it from the thread that runs the program.
+ */
+public final class EventBuffer implements EventSink {
+    static final int CHUNK_BITS = 12;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final byte CLEAR = 0, MOVE = 1, SAY = 2, ERROR = 3;
+    private static final byte PEN_DOWN = 1;
+
+    private static final class Chunk {
+        final byte[] kind = new byte[CHUNK_SIZE];
+        final int[] fromX = new int[CHUNK_SIZE];
+        final int[] fromY = new int[CHUNK_SIZE];
+        final int[] toX = new int[CHUNK_SIZE];
+        final int[] toY = new int[CHUNK_SIZE];
+        final double[] direction = new double[CHUNK_SIZE];
+        final byte[] pen = new byte[CHUNK_SIZE];
+        // Palette index for moves, index into messages for say and error rows.
+        final int[] ref = new int[CHUNK_SIZE];
+    }
+
+    private Chunk[] chunks = new Chunk[4];
+    private int size = 0;
+    private final List<String> palette = new ArrayList<>();
+    private final List<String> messages = new ArrayList<>();
+
+    // Colors repeat constantly, so remember the last lookup.
+    private String lastColor;
+    private int lastColorIndex = -1;
+
+    @Override
+    public void accept(ExecutionEvent event) {
+        if (event instanceof ExecutionEvent.MoveEvent m) {
+            move(m.fromX(), m.fromY(), m.toX(), m.toY(), m.newDirection(), m.isPenDown(), m.color());
+        } else if (event instanceof ExecutionEvent.SayEvent say) {
+            addMessage(SAY, say.message());
+        } else if (event instanceof ExecutionEvent.ErrorEvent error) {
+            addMessage(ERROR, error.errorMessage());
+        } else if (event instanceof ExecutionEvent.ClearEvent) {
+            chunkFor(size).kind[size & CHUNK_MASK] = CLEAR;
+            size++;
+        }
+    }
+
+    @Override
+    public void move(int fromX, int fromY, int toX, int toY, double direction, boolean penDown, String color) {
+        int colorIndex = paletteIndex(color);
+        byte pen = penDown ? PEN_DOWN : 0;
+        int row = size;
+        if (fromX == toX && fromY == toY && size > 0) {
+            int last = size - 1;
+            Chunk c = chunks[last >>> CHUNK_BITS];
+            int i = last & CHUNK_MASK;
+            if (c.kind[i] == MOVE && c.toX[i] == toX && c.toY[i] == toY) {
+                if (c.pen[i] == pen && c.ref[i] == colorIndex && Double.compare(c.direction[i], direction) == 0) {
+                    return;
+                }
+                if (c.fromX[i] == c.toX[i] && c.fromY[i] == c.toY[i]) {
+                    row = last;
+                }
+            }
+        }
+        Chunk c = chunkFor(row);
+        int i = row & CHUNK_MASK;
+        c.kind[i] = MOVE;
+        c.fromX[i] = fromX;
+        c.fromY[i] = fromY;
+        c.toX[i] = toX;
+        c.toY[i] = toY;
+        c.direction[i] = direction;
+        c.pen[i] = pen;
+        c.ref[i] = colorIndex;
+        size = row + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** The row at the given index as an event record, created on each call. */
+    public ExecutionEvent get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        Chunk c = chunks[index >>> CHUNK_BITS];
+        int i = index & CHUNK_MASK;
+        return switch (c.kind[i]) {
+            case MOVE -> new ExecutionEvent.MoveEvent(c.fromX[i], c.fromY[i], c.toX[i], c.toY[i],
+                    c.direction[i], c.pen[i] == PEN_DOWN, palette.get(c.ref[i]));
+            case SAY -> new ExecutionEvent.SayEvent(messages.get(c.ref[i]));
+            case ERROR -> new ExecutionEvent.ErrorEvent(messages.get(c.ref[i]));
+            default -> new ExecutionEvent.ClearEvent();
+        };
+    }
+
+    /** A read-only list view; records are created as elements are read. */
+    public List<ExecutionEvent> events() {
+        return new EventView();
+    }
+
+    /**
+     * Pushes every stored event to the sink in order. Moves go through
+     * {@link EventSink#move}, so a sink that overrides it receives no objects.
+     */
+    public void replay(EventSink sink) {
+        for (int index = 0; index < size; index++) {
+            Chunk c = chunks[index >>> CHUNK_BITS];
+            int i = index & CHUNK_MASK;
+            if (c.kind[i] == MOVE) {
+                sink.move(c.fromX[i], c.fromY[i], c.toX[i], c.toY[i],
+                        c.direction[i], c.pen[i] == PEN_DOWN, palette.get(c.ref[i]));
+            } else {
+                sink.accept(get(index));
+            }
+        }
+    }
+
+    private void addMessage(byte kind, String message) {
+        Chunk c = chunkFor(size);
+        int i = size & CHUNK_MASK;
+        c.kind[i] = kind;
+        c.ref[i] = messages.size();
+        messages.add(message);
+        size++;
+    }
+
+    private int paletteIndex(String color) {
+        if (color == lastColor && lastColorIndex >= 0) {
+            return lastColorIndex;
+        }
+        int index = palette.indexOf(color);
+        if (index < 0) {
+            index = palette.size();
+            palette.add(color);
+        }
+        lastColor = color;
+        lastColorIndex = index;
+        return index;
+    }
+
+    private Chunk chunkFor(int row) {
+        int n = row >>> CHUNK_BITS;
+        if (n == chunks.length) {
+            chunks = Arrays.copyOf(chunks, n * 2);
+        }
+        Chunk c = chunks[n];
+        if (c == null) {
+            c = chunks[n] = new Chunk();
+        }
+        return c;
+    }
+
+    private final class EventView extends AbstractList<ExecutionEvent> implements RandomAccess {
+        @Override
+        public ExecutionEvent get(int index) {
+            return EventBuffer.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.kidcode.core.event;
+
+/**
+ * Receives execution events one at a time, as soon as the engine produces them.
+ * Nothing is buffered on the engine side, so a sink that renders or forwards each
+ * event keeps memory flat no matter how long the program runs.
+ *
+ * Events are delivered on the thread that runs the program.
+ */
+@FunctionalInterface
+public interface EventSink {
+    void accept(ExecutionEvent event);
+
+    /**
+     * The engine reports every turtle step through this method. By default it
+     * wraps the values in a {@link ExecutionEvent.MoveEvent}; sinks that store or
+     * encode the fields directly (such as {@link EventBuffer}) override it so the
+     * hot path allocates nothing.
+     */
+    default void move(int fromX, int fromY, int toX, int toY, double direction, boolean penDown, String color) {
+        accept(new ExecutionEvent.MoveEvent(fromX, fromY, toX, toY, direction, penDown, color));
+    }
+}
@@ -0,0 +1,215 @@
+package com.kidcode.core.event;
+
+import java.util.Arrays;
+
+/**
+ * An optional stage between the engine and a sink that cuts down the number of
+ * moves without changing what gets drawn.
+ *
+ * Pen-down segments that continue one another in the same color are collected
+ * into a polyline, and points that lie on the straight line between their
+ * neighbours are left out, so {@code repeat 100 / move forward 1} reaches the
+ * sink as one move. Moves that only report a new heading, pen or color are held
+ * back, and consecutive pen-up moves become one; Cody's latest state is sent
+ * before any other event and by {@link #flush()}.
+ *
+ * With a tolerance above zero, polylines are also simplified with the
+ * Ramer-Douglas-Peucker algorithm: a point is dropped when the simplified line
+ * passes within that many pixels of it.
+ *
+ * Polylines are cut every {@link #MAX_POINTS} points, so memory stays bounded
+ * however long a run draws. Call {@link #flush()} once the run has ended.
+ */
+public final class SegmentCoalescer implements EventSink {
+    static final int MAX_POINTS = 4096;
+
+    private final EventSink sink;
+    private final double toleranceSquared;
+
+    // The open polyline; each point's heading is the one Cody had on reaching it.
+    private final int[] xs = new int[MAX_POINTS];
+    private final int[] ys = new int[MAX_POINTS];
+    private final double[] directions = new double[MAX_POINTS];
+    private int points = 0;
+    private String lineColor;
+    // For the simplification, kept between calls.
+    private final boolean[] keep = new boolean[MAX_POINTS];
+    private final int[] ranges = new int[2 * MAX_POINTS];
+
+    // A run of pen-up moves not yet sent; it ends where Cody is now.
+    private boolean jumping = false;
+    private int jumpFromX;
+    private int jumpFromY;
+
+    // Cody's state after the last move received, and after the last move sent.
+    private int x, y;
+    private double direction;
+    private boolean penDown;
+    private String color;
+    private boolean received = false;
+    private int sentX, sentY;
+    private double sentDirection;
+    private boolean sentPenDown;
+    private String sentColor;
+    private boolean sent = false;
+
+    /** Merges only what can be merged without changing the drawing. */
+    public SegmentCoalescer(EventSink sink) {
+        this(sink, 0);
+    }
+
+    /** @param tolerance how far, in pixels, a simplified line may pass from the points it replaces */
+    public SegmentCoalescer(EventSink sink, double tolerance) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("Tolerance cannot be negative");
+        }
+        this.sink = sink;
+        this.toleranceSquared = tolerance * tolerance;
+    }
+
+    @Override
+    public void accept(ExecutionEvent event) {
+        if (event instanceof ExecutionEvent.MoveEvent m) {
+            move(m.fromX(), m.fromY(), m.toX(), m.toY(), m.newDirection(), m.isPenDown(), m.color());
+            return;
+        }
+        flush();
+        sink.accept(event);
+        if (event instanceof ExecutionEvent.ClearEvent) {
+            sent = false; // the sink has forgotten Cody's state
+        }
+    }
+
+    @Override
+    public void move(int fromX, int fromY, int toX, int toY, double direction, boolean penDown, String color) {
+        if (fromX != toX || fromY != toY) {
+            if (penDown) {
+                endJump();
+                if (points > 0 && (points == MAX_POINTS || !color.equals(lineColor)
+                        || fromX != xs[points - 1] || fromY != ys[points - 1])) {
+                    endLine();
+                }
+                if (points == 0) {
+                    lineColor = color;
+                    addPoint(fromX, fromY, this.direction);
+                }
+                addPoint(toX, toY, direction);
+            } else {
+                endLine();
+                if (!jumping) {
+                    jumping = true;
+                    jumpFromX = fromX;
+                    jumpFromY = fromY;
+                }
+            }
+        }
+        this.x = toX;
+        this.y = toY;
+        this.direction = direction;
+        this.penDown = penDown;
+        this.color = color;
+        received = true;
+    }
+
+    /** Sends everything held back, ending with Cody's current state. */
+    public void flush() {
+        endLine();
+        endJump();
+        if (received && (!sent || x != sentX || y != sentY || Double.compare(direction, sentDirection) != 0
+                || penDown != sentPenDown || !color.equals(sentColor))) {
+            send(x, y, x, y, direction, penDown, color);
+        }
+    }
+
+    private void addPoint(int px, int py, double heading) {
+        xs[points] = px;
+        ys[points] = py;
+        directions[points] = heading;
+        points++;
+    }
+
+    private void endJump() {
+        if (jumping) {
+            jumping = false;
+            send(jumpFromX, jumpFromY, x, y, direction, false, color);
+        }
+    }
+
+    private void endLine() {
+        if (points < 2) {
+            points = 0;
+            return;
+        }
+        simplify();
+        int from = 0;
+        for (int i = 1; i < points; i++) {
+            if (keep[i]) {
+                send(xs[from], ys[from], xs[i], ys[i], directions[i], true, lineColor);
+                from = i;
+            }
+        }
+        points = 0;
+    }
+
+    private void send(int fromX, int fromY, int toX, int toY, double heading, boolean pen, String penColor) {
+        sink.move(fromX, fromY, toX, toY, heading, pen, penColor);
+        sentX = toX;
+        sentY = toY;
+        sentDirection = heading;
+        sentPenDown = pen;
+        sentColor = penColor;
+        sent = true;
+    }
+
+    // Marks in keep the points of the open polyline that stay: Ramer-Douglas-Peucker
+    // with an explicit stack of index ranges.
+    private void simplify() {
+        Arrays.fill(keep, 0, points, false);
+        keep[0] = true;
+        keep[points - 1] = true;
+        int top = 0;
+        ranges[top++] = 0;
+        ranges[top++] = points - 1;
+        while (top > 0) {
+            int last = ranges[--top];
+            int first = ranges[--top];
+            int farthest = -1;
+            double farthestDistance = toleranceSquared;
+            for (int i = first + 1; i < last; i++) {
+                double distance = distanceSquared(i, first, last);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest != -1) {
+                keep[farthest] = true;
+                ranges[top++] = first;
+                ranges[top++] = farthest;
+                ranges[top++] = farthest;
+                ranges[top++] = last;
+            }
+        }
+    }
+
+    // Squared distance from point i to the segment between points a and b. With
+    // integer coordinates it is exactly 0 for a point on that segment.
+    private double distanceSquared(int i, int a, int b) {
+        double dx = (double) xs[b] - xs[a];
+        double dy = (double) ys[b] - ys[a];
+        double px = (double) xs[i] - xs[a];
+        double py = (double) ys[i] - ys[a];
+        double lengthSquared = dx * dx + dy * dy;
+        double along = px * dx + py * dy;
+        if (lengthSquared == 0 || along <= 0) {
+            return px * px + py * py;
+        }
+        if (along >= lengthSquared) {
+            double qx = (double) xs[i] - xs[b];
+            double qy = (double) ys[i] - ys[b];
+            return qx * qx + qy * qy;
+        }
+        double cross = px * dy - py * dx;
+        return cross * cross / lengthSquared;
+    }
+}
@@ -1,9 +1,7 @@
 package com.kidcode.core.lexer;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class Lexer {
     private final String input;
@@ -12,33 +10,71 @@ public class Lexer {
     private char ch; // current char under examination
     private int lineNumber = 1;
 
-    private static final Map<String, TokenType> keywords = new HashMap<>();
+    private static final String[] KEYWORDS = {
+        "move", "forward", "turn", "left", "right", "say", "repeat", "end", "set",
+        "if", "else", "pen", "up", "down", "color", "define", "home"
+    };
+    private static final TokenType[] KEYWORD_TYPES = {
+        TokenType.MOVE, TokenType.FORWARD, TokenType.TURN, TokenType.LEFT, TokenType.RIGHT,
+        TokenType.SAY, TokenType.REPEAT, TokenType.END, TokenType.SET, TokenType.IF,
+        TokenType.ELSE, TokenType.PEN, TokenType.UP, TokenType.DOWN, TokenType.COLOR,
+        TokenType.DEFINE, TokenType.HOME
+    };
+    // Indexes into KEYWORDS, grouped by lower-case first letter, so an identifier is
+    // compared against at most a few candidates.
+    private static final int[][] KEYWORDS_BY_LETTER = new int[26][];
 
     static {
-        keywords.put("move", TokenType.MOVE);
-        keywords.put("forward", TokenType.FORWARD);
-        keywords.put("turn", TokenType.TURN);
-        keywords.put("left", TokenType.LEFT);
-        keywords.put("right", TokenType.RIGHT);
-        keywords.put("say", TokenType.SAY);
-        keywords.put("repeat", TokenType.REPEAT);
-        keywords.put("end", TokenType.END);
-        keywords.put("set", TokenType.SET);
-        keywords.put("if", TokenType.IF);
-        keywords.put("else", TokenType.ELSE);
-        keywords.put("pen", TokenType.PEN);
-        keywords.put("up", TokenType.UP);
-        keywords.put("down", TokenType.DOWN);
-        keywords.put("color", TokenType.COLOR);
-        keywords.put("define", TokenType.DEFINE);
-        keywords.put("home", TokenType.HOME);
+        for (int letter = 0; letter < 26; letter++) {
+            int count = 0;
+            for (String keyword : KEYWORDS) {
+                if (keyword.charAt(0) == 'a' + letter) count++;
+            }
+            KEYWORDS_BY_LETTER[letter] = new int[count];
+            count = 0;
+            for (int i = 0; i < KEYWORDS.length; i++) {
+                if (KEYWORDS[i].charAt(0) == 'a' + letter) KEYWORDS_BY_LETTER[letter][count++] = i;
+            }
+        }
     }
 
+    // Created once; every call after the end of input returns it again.
+    private Token eof;
+
+    private int tokenStart = 0; // where the last token returned by nextToken() starts
+
     public Lexer(String input) {
+        this(input, 0, 1);
+    }
+
+    /**
+     * Starts lexing part way through the input, at a token boundary on the given
+     * line. Used to re-lex only the part of a document that changed.
+     */
+    public Lexer(String input, int offset, int lineNumber) {
         this.input = input;
+        this.readPosition = offset;
+        this.lineNumber = lineNumber;
         readChar(); // Initialize the first character
     }
 
+    /** Offset of the first character of the token last returned by {@link #nextToken()}. */
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * Offset of the last character the lexer has looked at. Tokens returned so far
+     * depend only on the input up to and including this offset.
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * Lexes the whole input up front. The parser pulls tokens one at a time with
+     * {@link #nextToken()} instead; this is for tests and tools that want the list.
+     */
     public List<Token> allTokens() {
         List<Token> tokens = new ArrayList<>();
         Token t;
@@ -94,6 +130,7 @@ public class Lexer {
             break;
         }
 
+        tokenStart = position;
         Token token;
 
         // The rest of the switch statement is the same. It is now guaranteed
@@ -104,18 +141,18 @@ public class Lexer {
                     readChar();
                     token = new Token(TokenType.EQ, "==", lineNumber);
                 } else {
-                    token = new Token(TokenType.ASSIGN, String.valueOf(ch), lineNumber);
+                    token = new Token(TokenType.ASSIGN, "=", lineNumber);
                 }
                 break;
-            case '+': token = new Token(TokenType.PLUS, String.valueOf(ch), lineNumber); break;
-            case '-': token = new Token(TokenType.MINUS, String.valueOf(ch), lineNumber); break;
-            case '*': token = new Token(TokenType.STAR, String.valueOf(ch), lineNumber); break;
-            case '/': token = new Token(TokenType.SLASH, String.valueOf(ch), lineNumber); break;
-            case '(': token = new Token(TokenType.LPAREN, String.valueOf(ch), lineNumber); break;
-            case ')': token = new Token(TokenType.RPAREN, String.valueOf(ch), lineNumber); break;
-            case '[': token = new Token(TokenType.LBRACKET, String.valueOf(ch), lineNumber); break;
-            case ']': token = new Token(TokenType.RBRACKET, String.valueOf(ch), lineNumber); break;
-            case ',': token = new Token(TokenType.COMMA, String.valueOf(ch), lineNumber); break;
+            case '+': token = new Token(TokenType.PLUS, "+", lineNumber); break;
+            case '-': token = new Token(TokenType.MINUS, "-", lineNumber); break;
+            case '*': token = new Token(TokenType.STAR, "*", lineNumber); break;
+            case '/': token = new Token(TokenType.SLASH, "/", lineNumber); break;
+            case '(': token = new Token(TokenType.LPAREN, "(", lineNumber); break;
+            case ')': token = new Token(TokenType.RPAREN, ")", lineNumber); break;
+            case '[': token = new Token(TokenType.LBRACKET, "[", lineNumber); break;
+            case ']': token = new Token(TokenType.RBRACKET, "]", lineNumber); break;
+            case ',': token = new Token(TokenType.COMMA, ",", lineNumber); break;
             case '!':
                 if (peekChar() == '=') {
                     readChar();
@@ -127,13 +164,13 @@ public class Lexer {
             case '"':
                 return new Token(TokenType.STRING, readString(), lineNumber);
             case 0:
-                token = new Token(TokenType.EOF, "", lineNumber);
-                break;
+                if (eof == null) {
+                    eof = new Token(TokenType.EOF, "", lineNumber);
+                }
+                return eof;
             default:
                 if (isLetter(ch)) {
-                    String literal = readIdentifier();
-                    TokenType type = keywords.getOrDefault(literal.toLowerCase(), TokenType.IDENTIFIER);
-                    return new Token(type, literal, lineNumber);
+                    return readIdentifierOrKeyword();
                 } else if (isDigit(ch)) {
                     return new Token(TokenType.NUMBER, readNumber(), lineNumber);
                 } else {
@@ -145,14 +182,27 @@ public class Lexer {
         return token;
     }
 
-    private String readIdentifier() {
-        int startPosition = position;
+    private Token readIdentifierOrKeyword() {
+        int start = position;
         while (isLetter(ch)) {
             readChar();
         }
         // `readChar` leaves `ch` on the first non-letter character,
         // so we don't need to advance again.
-        return input.substring(startPosition, position);
+        int length = position - start;
+        int first = input.charAt(start) | 0x20; // ASCII lower case
+        if (first >= 'a' && first <= 'z') {
+            for (int index : KEYWORDS_BY_LETTER[first - 'a']) {
+                String keyword = KEYWORDS[index];
+                // Keywords are case-insensitive; the usual all-lower-case spelling
+                // reuses the keyword's own string.
+                if (keyword.length() == length && input.regionMatches(true, start, keyword, 0, length)) {
+                    String literal = input.startsWith(keyword, start) ? keyword : input.substring(start, position);
+                    return new Token(KEYWORD_TYPES[index], literal, lineNumber);
+                }
+            }
+        }
+        return new Token(TokenType.IDENTIFIER, input.substring(start, position), lineNumber);
     }
 
     private String readNumber() {
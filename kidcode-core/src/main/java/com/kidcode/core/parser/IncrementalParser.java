@@ -0,0 +1,194 @@
+package com.kidcode.core.parser;
+
+import com.kidcode.core.ast.Statement;
+import com.kidcode.core.lexer.Lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the parse of a document that is being edited, and after each edit
+ * re-lexes and re-parses only the top-level statements the edit can affect.
+ *
+ * The document is held as a list of top-level statements (a whole
+ * repeat/define/if block counts as one), each with the range of text it was
+ * parsed from and the range the parser looked at to parse it. On an edit:
+ * <ul>
+ *   <li>statements whose parse looked only at text before the edit are kept;</li>
+ *   <li>parsing restarts at the first statement that isn't, and continues until
+ *       a statement starts exactly where an old statement after the edit started;</li>
+ *   <li>from there on the old statements are kept, shifted by the edit's length
+ *       and line delta.</li>
+ * </ul>
+ * The statements and errors are always the same as a full parse of the current
+ * text would produce.
+ *
+ * Not thread-safe.
+ */
+public final class IncrementalParser {
+
+    // One top-level parseStatement() call. The statement is null when it failed to parse.
+    private record Step(int start, int dependsUpTo, int line, Statement statement, List<String> errors) {
+        Step shift(int offsetDelta, int lineDelta) {
+            List<String> shifted = errors;
+            if (lineDelta != 0 && !errors.isEmpty()) {
+                shifted = new ArrayList<>(errors.size());
+                for (String error : errors) {
+                    shifted.add(shiftLine(error, lineDelta));
+                }
+            }
+            return new Step(start + offsetDelta, dependsUpTo + offsetDelta, line + lineDelta, statement, shifted);
+        }
+    }
+
+    private static final Pattern ERROR_LINE = Pattern.compile("^Error line (\\d+)");
+
+    private String source = "";
+    private List<Step> steps = List.of();
+    private int lastReparsed = 0;
+
+    public IncrementalParser(String source) {
+        update(source);
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public List<Statement> statements() {
+        List<Statement> statements = new ArrayList<>(steps.size());
+        for (Step step : steps) {
+            if (step.statement() != null) {
+                statements.add(step.statement());
+            }
+        }
+        return statements;
+    }
+
+    public List<String> errors() {
+        List<String> errors = new ArrayList<>();
+        for (Step step : steps) {
+            errors.addAll(step.errors());
+        }
+        return errors;
+    }
+
+    // How many top-level statements the last edit re-parsed.
+    int lastReparsed() {
+        return lastReparsed;
+    }
+
+    /**
+     * Brings the parse up to date with a new version of the whole document. The
+     * changed region is found by trimming the common prefix and suffix, so one
+     * contiguous edit costs no more than {@link #edit}.
+     */
+    public void update(String newSource) {
+        int oldLength = source.length();
+        int newLength = newSource.length();
+        int prefix = 0;
+        int max = Math.min(oldLength, newLength);
+        while (prefix < max && source.charAt(prefix) == newSource.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix
+                && source.charAt(oldLength - 1 - suffix) == newSource.charAt(newLength - 1 - suffix)) {
+            suffix++;
+        }
+        if (prefix == oldLength && prefix == newLength && !steps.isEmpty()) {
+            lastReparsed = 0;
+            return;
+        }
+        reparse(newSource, prefix, oldLength - suffix, newLength - suffix - prefix);
+    }
+
+    /** Replaces the text between start (inclusive) and end (exclusive) with the replacement. */
+    public void edit(int start, int end, String replacement) {
+        if (start < 0 || end < start || end > source.length()) {
+            throw new IndexOutOfBoundsException("Edit range [" + start + ", " + end + ") outside document of length " + source.length());
+        }
+        String newSource = source.substring(0, start) + replacement + source.substring(end);
+        reparse(newSource, start, end, replacement.length());
+    }
+
+    private void reparse(String newSource, int editStart, int editEnd, int insertedLength) {
+        int delta = insertedLength - (editEnd - editStart);
+
+        // Keep every statement whose parse never looked at the edited text.
+        int keep = 0;
+        while (keep < steps.size() && steps.get(keep).dependsUpTo() < editStart) {
+            keep++;
+        }
+        if (keep == steps.size()) {
+            keep = 0; // nothing to anchor on, e.g. an empty document
+        }
+        // The comments and blank lines before a statement belong to it, except before
+        // the first one, where the edit may be; so the first statement restarts from 0.
+        int restartOffset = keep > 0 ? steps.get(keep).start() : 0;
+        int restartLine = keep > 0 ? steps.get(keep).line() : 1;
+
+        List<Step> rebuilt = new ArrayList<>(steps.subList(0, keep));
+        Parser parser = new Parser(new Lexer(newSource, restartOffset, restartLine));
+        int reparsed = 0;
+        int firstUnchanged = editStart + insertedLength; // new offsets from here on map back to old ones
+        while (!parser.atEnd()) {
+            int start = parser.currentStart();
+            if (start >= firstUnchanged) {
+                int old = findStep(start - delta, keep);
+                if (old >= 0) {
+                    // Line numbers come from the lexer, which doesn't count newlines inside
+                    // strings, so the shift is taken from the tokens rather than the text.
+                    int lineDelta = parser.currentLine() - steps.get(old).line();
+                    for (int i = old; i < steps.size(); i++) {
+                        rebuilt.add(steps.get(i).shift(delta, lineDelta));
+                    }
+                    break;
+                }
+            }
+            int line = parser.currentLine();
+            int errorCount = parser.getErrors().size();
+            Statement statement = parser.parseTopLevelStatement();
+            List<String> newErrors = parser.getErrors().size() == errorCount
+                    ? List.of()
+                    : List.copyOf(parser.getErrors().subList(errorCount, parser.getErrors().size()));
+            rebuilt.add(new Step(start, parser.dependsOnInputUpTo(), line, statement, newErrors));
+            reparsed++;
+        }
+
+        source = newSource;
+        steps = rebuilt;
+        lastReparsed = reparsed;
+    }
+
+    // Index of the old step starting exactly at the given old offset, or -1.
+    private int findStep(int oldStart, int from) {
+        int low = from;
+        int high = steps.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int start = steps.get(mid).start();
+            if (start < oldStart) {
+                low = mid + 1;
+            } else if (start > oldStart) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // Errors carry the line they were found on; moving a statement moves its errors.
+    // Line -1 (reported past the end of input) stays as it is.
+    private static String shiftLine(String error, int lineDelta) {
+        Matcher matcher = ERROR_LINE.matcher(error);
+        if (!matcher.find()) {
+            return error;
+        }
+        int line = Integer.parseInt(matcher.group(1)) + lineDelta;
+        return "Error line " + line + error.substring(matcher.end());
+    }
+}
@@ -5,8 +5,13 @@ import com.kidcode.core.lexer.*;
 import java.util.*;
 
 public class Parser {
-    private final List<Token> tokens;
-    private int position = 0;
+    // Tokens are pulled from the lexer as parsing goes; only the current token and
+    // one token of lookahead are held, so memory doesn't grow with the input.
+    private final Lexer lexer;
+    private Token current;
+    private Token peek;
+    private int currentStart;
+    private int peekStart;
     private final List<String> errors = new ArrayList<>();
 
     private enum Precedence {
@@ -27,8 +32,15 @@ public class Parser {
         precedences.put(TokenType.LPAREN, Precedence.INDEX); // Function calls
     }
 
+    // What the parser sees once it has moved past the EOF token.
+    private static final Token PAST_END = new Token(TokenType.EOF, "", -1);
+
     public Parser(Lexer lexer) {
-        this.tokens = lexer.allTokens();
+        this.lexer = lexer;
+        this.current = lexer.nextToken();
+        this.currentStart = lexer.tokenStart();
+        this.peek = current.type() == TokenType.EOF ? PAST_END : lexer.nextToken();
+        this.peekStart = lexer.tokenStart();
     }
 
     public List<String> getErrors() {
@@ -36,15 +48,18 @@ public class Parser {
     }
 
     private Token currentToken() {
-        return (position < tokens.size()) ? tokens.get(position) : new Token(TokenType.EOF, "", -1);
+        return current;
     }
 
     private Token peekToken() {
-        return (position + 1 < tokens.size()) ? tokens.get(position + 1) : new Token(TokenType.EOF, "", -1);
+        return peek;
     }
 
     private void nextToken() {
-        position++;
+        current = peek;
+        currentStart = peekStart;
+        peek = peek.type() == TokenType.EOF ? PAST_END : lexer.nextToken();
+        peekStart = lexer.tokenStart();
     }
 
     public List<Statement> parseProgram() {
@@ -58,6 +73,30 @@ public class Parser {
         return statements;
     }
 
+    // --- Used by IncrementalParser to parse one top-level statement at a time ---
+
+    boolean atEnd() {
+        return current.type() == TokenType.EOF;
+    }
+
+    int currentStart() {
+        return currentStart;
+    }
+
+    int currentLine() {
+        return current.lineNumber();
+    }
+
+    // Everything parsed so far depends only on the input up to this offset.
+    int dependsOnInputUpTo() {
+        return lexer.position();
+    }
+
+    // Returns null, with errors recorded, when the statement could not be parsed.
+    Statement parseTopLevelStatement() {
+        return parseStatement();
+    }
+
     private void advanceToNextStatement() {
         nextToken();
     }
@@ -0,0 +1,133 @@
+package com.kidcode.core;
+
+import com.kidcode.core.compiler.MachineState;
+import com.kidcode.core.event.ExecutionEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutionTest {
+
+    private static final String DRAWING = """
+            set colors = ["red", "green"]
+            set shared = colors
+            define koch size depth
+                if depth == 0
+                    move forward size
+                else
+                    set third = size / 3
+                    set lower = depth - 1
+                    koch third lower
+                    turn left 60
+                    koch third lower
+                end if
+            end define
+            define walk n
+                move forward n
+                if n != 0
+                    set shorter = n - 1
+                    walk shorter
+                end if
+            end define
+            repeat 4
+                set colors = pack(colors, "blue")
+                color shared[1]
+                koch 81 3
+                turn right 90
+                walk 5
+                turn right 90
+            end repeat
+            say count(shared)
+            say after(colors)
+            """;
+
+    @Test
+    public void testSlicesAddUpToOneRun() {
+        List<ExecutionEvent> expected = new ArrayList<>();
+        new KidCodeEngine().execute(DRAWING, expected::add);
+        for (int slice : new int[] {1, 7, 1_000}) {
+            Execution execution = new KidCodeEngine().start(DRAWING, ExecutionBudget.DEFAULT);
+            List<ExecutionEvent> events = new ArrayList<>();
+            int slices = 0;
+            while (execution.run(slice, events::add) == ExecutionStatus.PAUSED) {
+                slices++;
+            }
+            assertEquals(expected, events, "slices of " + slice);
+            assertEquals(ExecutionStatus.COMPLETED, execution.status());
+            assertTrue(slice > 100 || slices > 10, "Expected several slices, got " + slices);
+        }
+    }
+
+    @Test
+    public void testResumingFromBytesAfterEverySlice() {
+        List<ExecutionEvent> expected = new ArrayList<>();
+        new KidCodeEngine().execute(DRAWING, expected::add);
+        List<ExecutionEvent> events = new ArrayList<>();
+        Execution execution = new KidCodeEngine().start(DRAWING, ExecutionBudget.DEFAULT);
+        while (execution.run(5, events::add) == ExecutionStatus.PAUSED) {
+            byte[] saved = execution.snapshot().toBytes();
+            execution = new KidCodeEngine().resume(ExecutionSnapshot.fromBytes(saved), ExecutionBudget.DEFAULT);
+        }
+        assertEquals(expected, events);
+    }
+
+    @Test
+    public void testBudgetCoversAllSlices() {
+        Execution execution = new KidCodeEngine().start("repeat 100\n move forward 1\nend repeat",
+                ExecutionBudget.DEFAULT.withMaxInstructions(50));
+        List<ExecutionEvent> events = new ArrayList<>();
+        ExecutionStatus status;
+        do {
+            status = execution.run(10, events::add);
+            if (status == ExecutionStatus.PAUSED) {
+                execution = new KidCodeEngine().resume(execution.snapshot(), ExecutionBudget.DEFAULT.withMaxInstructions(50));
+            }
+        } while (status == ExecutionStatus.PAUSED);
+        assertEquals(ExecutionStatus.INSTRUCTION_LIMIT, status);
+        assertInstanceOf(ExecutionEvent.ErrorEvent.class, events.get(events.size() - 1));
+    }
+
+    @Test
+    public void testSnapshotOfAnotherProgramIsRejected() {
+        Execution execution = new KidCodeEngine().start(DRAWING, ExecutionBudget.DEFAULT);
+        assertEquals(ExecutionStatus.PAUSED, execution.run(40, event -> {}));
+        ExecutionSnapshot snapshot = execution.snapshot();
+        ExecutionSnapshot tampered = new ExecutionSnapshot("say 1", snapshot.state());
+        assertThrows(IllegalArgumentException.class, () -> new KidCodeEngine().resume(tampered, ExecutionBudget.DEFAULT));
+
+        byte[] bytes = snapshot.toBytes();
+        assertThrows(IllegalArgumentException.class,
+                () -> ExecutionSnapshot.fromBytes(Arrays.copyOf(bytes, bytes.length - 3)));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionSnapshot.fromBytes(new byte[] {1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    public void testParseErrorsCompleteInFirstSlice() {
+        Execution execution = new KidCodeEngine().start("set = 5", ExecutionBudget.DEFAULT);
+        List<ExecutionEvent> events = new ArrayList<>();
+        assertEquals(ExecutionStatus.COMPLETED, execution.run(10, events::add));
+        assertFalse(events.isEmpty());
+        events.forEach(event -> assertInstanceOf(ExecutionEvent.ErrorEvent.class, event));
+        assertThrows(IllegalStateException.class, execution::snapshot);
+    }
+
+    @Test
+    public void testCountersOutsideTheBudgetAreRejected() {
+        ExecutionBudget budget = ExecutionBudget.DEFAULT.withMaxEvents(1_000);
+        Execution execution = new KidCodeEngine().start(DRAWING, budget);
+        assertEquals(ExecutionStatus.PAUSED, execution.run(40, event -> {}));
+        ExecutionSnapshot snapshot = execution.snapshot();
+        MachineState state = snapshot.state();
+
+        for (long[] counts : new long[][] {{-1_000_000, 0}, {budget.maxInstructions() + 1, 0}, {0, -1}, {0, 1_001}}) {
+            MachineState tampered = new MachineState(counts[0], counts[1], state.turtle(), state.functions(), state.frames());
+            byte[] bytes = new ExecutionSnapshot(DRAWING, tampered).toBytes();
+            assertThrows(IllegalArgumentException.class,
+                    () -> new KidCodeEngine().resume(ExecutionSnapshot.fromBytes(bytes), budget));
+        }
+    }
+}
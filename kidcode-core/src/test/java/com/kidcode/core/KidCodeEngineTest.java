@@ -0,0 +1,94 @@
+package com.kidcode.core;
+
+import com.kidcode.core.event.ExecutionEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KidCodeEngineTest {
+
+    @Test
+    public void testStreamingDeliversSameEventsAsList() {
+        String code = "repeat 3\n move forward 10\n turn right 90\nend repeat\nsay \"done\"";
+        KidCodeEngine engine = new KidCodeEngine();
+        List<ExecutionEvent> streamed = new ArrayList<>();
+        engine.execute(code, streamed::add);
+
+        assertEquals(engine.execute(code), streamed);
+        assertInstanceOf(ExecutionEvent.ClearEvent.class, streamed.get(0));
+        assertEquals(new ExecutionEvent.SayEvent("done"), streamed.get(streamed.size() - 1));
+    }
+
+    @Test
+    public void testParseErrorsAreStreamedAsErrorEvents() {
+        List<ExecutionEvent> streamed = new ArrayList<>();
+        new KidCodeEngine().execute("set = 5", streamed::add);
+
+        assertFalse(streamed.isEmpty(), "Parse errors should reach the sink");
+        streamed.forEach(event -> assertInstanceOf(ExecutionEvent.ErrorEvent.class, event));
+    }
+
+    @Test
+    public void testInstructionLimitEndsRunWithOneError() {
+        List<ExecutionEvent> events = new ArrayList<>();
+        ExecutionStatus status = new KidCodeEngine().execute("repeat 100\n move forward 1\nend repeat\nsay 1", events::add,
+                ExecutionBudget.DEFAULT.withMaxInstructions(11));
+
+        assertEquals(ExecutionStatus.INSTRUCTION_LIMIT, status);
+        // ClearEvent, the starting position, ten moves and the error
+        assertEquals(13, events.size());
+        assertEquals(1, events.stream().filter(ExecutionEvent.ErrorEvent.class::isInstance).count());
+        assertInstanceOf(ExecutionEvent.ErrorEvent.class, events.get(events.size() - 1));
+    }
+
+    @Test
+    public void testEventLimitEndsRun() {
+        List<ExecutionEvent> events = new ArrayList<>();
+        ExecutionStatus status = new KidCodeEngine().execute("repeat 100\n say \"hi\"\nend repeat", events::add,
+                ExecutionBudget.DEFAULT.withMaxEvents(50));
+
+        assertEquals(ExecutionStatus.EVENT_LIMIT, status);
+        assertEquals(51, events.size());
+        assertInstanceOf(ExecutionEvent.ErrorEvent.class, events.get(50));
+    }
+
+    @Test
+    public void testTimeLimitEndsEndlessRecursion() {
+        List<ExecutionEvent> events = new ArrayList<>();
+        String code = "define spin n\n turn right n\n spin n\nend define\nspin 1";
+        ExecutionStatus status = new KidCodeEngine().execute(code, events::add,
+                ExecutionBudget.DEFAULT.withMaxInstructions(Long.MAX_VALUE).withMaxTime(Duration.ofMillis(50)));
+
+        assertEquals(ExecutionStatus.TIME_LIMIT, status);
+        assertInstanceOf(ExecutionEvent.ErrorEvent.class, events.get(events.size() - 1));
+    }
+
+    // Loops with nothing in them run no statements, but must still see the signal and the clock.
+    private static final String EMPTY_LOOPS = "repeat 2147483647\n repeat 2147483647\n end repeat\nend repeat";
+
+    @Test
+    @Timeout(value = 10, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    public void testStopSignalEndsEmptyLoop() {
+        long stopAt = System.nanoTime() + Duration.ofMillis(50).toNanos();
+        ExecutionStatus status = new KidCodeEngine().execute(EMPTY_LOOPS, event -> {},
+                () -> System.nanoTime() - stopAt > 0);
+
+        assertEquals(ExecutionStatus.STOPPED, status);
+    }
+
+    @Test
+    @Timeout(value = 10, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    public void testTimeLimitEndsEmptyLoop() {
+        List<ExecutionEvent> events = new ArrayList<>();
+        ExecutionStatus status = new KidCodeEngine().execute(EMPTY_LOOPS, events::add,
+                ExecutionBudget.DEFAULT.withMaxTime(Duration.ofMillis(50)));
+
+        assertEquals(ExecutionStatus.TIME_LIMIT, status);
+        assertInstanceOf(ExecutionEvent.ErrorEvent.class, events.get(events.size() - 1));
+    }
+}
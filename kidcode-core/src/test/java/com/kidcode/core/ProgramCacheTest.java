@@ -0,0 +1,70 @@
+package com.kidcode.core;
+
+import com.kidcode.core.event.ExecutionEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProgramCacheTest {
+
+    @Test
+    public void testRepeatedSourceIsParsedOnce() {
+        ProgramCache cache = new ProgramCache(10, 10_000);
+        ParsedProgram first = cache.get("move forward 10");
+        ParsedProgram second = cache.get(new String("move forward 10"));
+
+        assertSame(first, second);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testKeepsParserErrors() {
+        ProgramCache cache = new ProgramCache(10, 10_000);
+        ParsedProgram program = cache.get("set = 5");
+
+        assertTrue(program.hasErrors());
+        assertNull(program.compiled());
+        assertSame(program, cache.get("set = 5"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        ProgramCache cache = new ProgramCache(2, 10_000);
+        cache.get("say 1");
+        cache.get("say 2");
+        cache.get("say 1");
+        cache.get("say 3"); // evicts "say 2"
+
+        assertEquals(2, cache.size());
+        cache.get("say 1");
+        assertEquals(2, cache.hits());
+        cache.get("say 2");
+        assertEquals(4, cache.misses());
+    }
+
+    @Test
+    public void testBoundsTotalSourceLength() {
+        ProgramCache cache = new ProgramCache(100, 12);
+        cache.get("say 1"); // 5 chars
+        cache.get("say 2"); // 10 chars
+        cache.get("say 3"); // 15 chars, evicts "say 1"
+        assertEquals(2, cache.size());
+
+        cache.get("say \"a long message\""); // larger than the bound, never cached
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testEngineRunsCachedProgramsLikeUncachedOnes() {
+        String code = "repeat 3\n move forward 10\n turn right 90\nend repeat";
+        KidCodeEngine cached = new KidCodeEngine(new ProgramCache(10, 10_000));
+        List<ExecutionEvent> first = new ArrayList<>(cached.execute(code));
+
+        assertEquals(new KidCodeEngine().execute(code), first);
+        assertEquals(first, cached.execute(code));
+    }
+}
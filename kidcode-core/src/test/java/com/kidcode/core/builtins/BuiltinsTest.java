@@ -29,11 +29,11 @@ public class BuiltinsTest {
     void testCountFunctionErrors() {
         // Test with wrong number of arguments
         Object resultWrongArgCount = Builtins.apply("count", List.of("a", "b"));
-        assertTrue(resultWrongArgCount instanceof String && ((String) resultWrongArgCount).startsWith("Error:"));
+        assertTrue(resultWrongArgCount instanceof ErrorValue e && e.message().startsWith("Error:"));
 
         // Test with wrong type
         Object resultWrongType = Builtins.apply("count", List.of(123));
-        assertTrue(resultWrongType instanceof String && ((String) resultWrongType).startsWith("Error:"));
+        assertTrue(resultWrongType instanceof ErrorValue e && e.message().startsWith("Error:"));
     }
 
     @Test
@@ -55,6 +55,14 @@ public class BuiltinsTest {
     void testWhisperFunctionErrors() {
         // Test with wrong number of arguments
         Object resultWrongArgCount = Builtins.apply("whisper", List.of());
-        assertTrue(resultWrongArgCount instanceof String && ((String) resultWrongArgCount).startsWith("Error:"));
+        assertTrue(resultWrongArgCount instanceof ErrorValue e && e.message().startsWith("Error:"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSupportedColors() {
+        assertTrue(Builtins.isSupportedColor("red"));
+        assertTrue(Builtins.isSupportedColor("Magenta"));
+        assertFalse(Builtins.isSupportedColor("teal"));
+        assertFalse(Builtins.isSupportedColor(null));
+    }
+}
@@ -0,0 +1,206 @@
+package com.kidcode.core.compiler;
+
+import com.kidcode.core.ExecutionBudget;
+import com.kidcode.core.ExecutionStatus;
+import com.kidcode.core.ast.Statement;
+import com.kidcode.core.evaluator.Environment;
+import com.kidcode.core.evaluator.Evaluator;
+import com.kidcode.core.event.EventBuffer;
+import com.kidcode.core.event.ExecutionEvent;
+import com.kidcode.core.lexer.Lexer;
+import com.kidcode.core.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompilerTest {
+
+    private List<Statement> parse(String source) {
+        Parser parser = new Parser(new Lexer(source));
+        List<Statement> program = parser.parseProgram();
+        assertTrue(parser.getErrors().isEmpty(), "Parser should have no errors: " + parser.getErrors());
+        return program;
+    }
+
+    // The compiled program must emit exactly what the tree-walking Evaluator emits.
+    private void assertSameEvents(String source) {
+        List<Statement> program = parse(source);
+        List<ExecutionEvent> expected = new Evaluator(() -> false).evaluate(program, new Environment());
+        List<ExecutionEvent> actual = new Compiler().compile(program).run(new Environment(), () -> false);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testSpiralMatchesEvaluator() {
+        assertSameEvents("""
+                set colors = ["red", "orange", "yellow", "green", "blue", "purple"]
+                set length = 5
+                set color_index = 0
+                repeat 75
+                    color colors[color_index]
+                    move forward length
+                    turn right 60
+                    set length = length + 2
+                    set color_index = color_index + 1
+                    if color_index == 6
+                        set color_index = 0
+                    end if
+                end repeat
+                """);
+    }
+
+    @Test
+    public void testFunctionsAndScopingMatchEvaluator() {
+        assertSameEvents("""
+                set size = 10
+                define square size
+                    repeat 4
+                        move forward size
+                        turn left 90
+                    end repeat
+                    set size = size + 1
+                    say size
+                end define
+                define nested n
+                    set doubled = n * 2
+                    square doubled
+                    say size
+                end define
+                square 30
+                nested 7
+                say size
+                pen up
+                home
+                pen down
+                square 5
+                """);
+    }
+
+    @Test
+    public void testVariableScopingMatchesEvaluator() {
+        assertSameEvents("""
+                set x = 1
+                set nothing = 5
+                define inner
+                    say x + y
+                    set nothing = front([])
+                    say nothing
+                end define
+                define outer y
+                    say x
+                    if y == 3
+                        set x = 100
+                    end if
+                    inner
+                    set x = x + 1
+                    say x
+                end define
+                outer 1
+                outer 3
+                say x
+                say nothing
+                inner
+                """);
+    }
+
+    @Test
+    public void testErrorsMatchEvaluator() {
+        assertSameEvents("""
+                say missing
+                set x = "a" - "b"
+                move forward "far"
+                turn right "much"
+                color "chartreuse"
+                color 5
+                repeat "many"
+                    say "never"
+                end repeat
+                if 1 / 0
+                    say "never"
+                else
+                    say "also never"
+                end if
+                undefined_function 1 2
+                define two a b
+                    say a + b
+                end define
+                two 1
+                two 1 missing
+                set bad = [1, 2][5]
+                say count([1, 2, 3]) + count("four")
+                say front([])
+                """);
+    }
+
+    @Test
+    public void testUserStringsStartingWithErrorAreNotErrors() {
+        String source = "set x = \"Error: not really\"\nsay x\nsay x + 1";
+        assertSameEvents(source);
+        List<ExecutionEvent> events = new Compiler().compile(parse(source)).run(new Environment(), () -> false);
+        assertTrue(events.contains(new ExecutionEvent.SayEvent("Error: not really")), "Got " + events);
+        assertTrue(events.contains(new ExecutionEvent.SayEvent("Error: not really1")), "Got " + events);
+    }
+
+    @Test
+    public void testRecursionMatchesEvaluator() {
+        assertSameEvents("""
+                define koch size depth
+                    if depth == 0
+                        move forward size
+                    else
+                        koch size / 3 depth - 1
+                        turn left 60
+                        koch size / 3 depth - 1
+                        turn right 120
+                        koch size / 3 depth - 1
+                        turn left 60
+                        koch size / 3 depth - 1
+                    end if
+                end define
+                define countdown n seen
+                    say n
+                    if n == 3
+                        set marker = n
+                    end if
+                    say marker
+                    if n != 0
+                        countdown seen n - 1
+                    end if
+                end define
+                koch 243 3
+                countdown 6 5
+                countdown 2 "two"
+                countdown 1 missing
+                say marker
+                """);
+    }
+
+    @Test
+    public void testDeepTailRecursionRunsInOneFrame() {
+        List<Statement> program = parse("""
+                define walk n
+                    move forward 1
+                    if n != 0
+                        walk n - 1
+                    end if
+                end define
+                walk 200000
+                say "done"
+                """);
+        EventBuffer events = new EventBuffer();
+        ExecutionStatus status = new Compiler().compile(program).run(new Environment(), () -> false, events);
+        assertEquals(ExecutionStatus.COMPLETED, status);
+        assertEquals(new ExecutionEvent.SayEvent("done"), events.get(events.size() - 1));
+    }
+
+    @Test
+    public void testStopSignalEndsRun() {
+        List<Statement> program = parse("repeat 100000\n move forward 1\nend repeat");
+        int[] polls = {0};
+        List<ExecutionEvent> events = new Compiler().compile(program).run(new Environment(), () -> ++polls[0] > 3);
+        // The signal is read once per CHECK_INTERVAL statements, so the stop comes after a few batches
+        assertTrue(events.size() < 4 * ExecutionBudget.CHECK_INTERVAL, "Run should stop early, got " + events.size() + " events");
+    }
+}
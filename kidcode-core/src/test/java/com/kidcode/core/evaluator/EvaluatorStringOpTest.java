@@ -1,6 +1,7 @@
 package com.kidcode.core.evaluator;
 
 import com.kidcode.core.ast.*;
+import com.kidcode.core.builtins.ErrorValue;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 
@@ -29,8 +30,8 @@ public class EvaluatorStringOpTest {
         Environment env = makeEnv();
         Expression expr = new InfixExpression(new StringLiteral("A"), "-", new StringLiteral("B"));
         Object res = ev.evaluateExpression(expr, env);
-        assertInstanceOf(String.class, res);
-        assertTrue(((String) res).startsWith("Error:"));
+        assertInstanceOf(ErrorValue.class, res);
+        assertTrue(((ErrorValue) res).message().startsWith("Error:"));
     }
 
     @Test
@@ -39,7 +40,16 @@ public class EvaluatorStringOpTest {
         Environment env = makeEnv();
         Expression expr = new InfixExpression(new StringLiteral("Hello"), "*", new IntegerLiteral(2));
         Object res = ev.evaluateExpression(expr, env);
-        assertInstanceOf(String.class, res);
-        assertTrue(((String) res).startsWith("Error:"));
+        assertInstanceOf(ErrorValue.class, res);
+        assertTrue(((ErrorValue) res).message().startsWith("Error:"));
+    }
+
+    @Test
+    public void userStringStartingWithErrorIsJustAString() {
+        Evaluator ev = makeEvaluator();
+        Environment env = makeEnv();
+        Expression expr = new InfixExpression(new StringLiteral("Error: "), "+", new IntegerLiteral(1));
+        Object res = ev.evaluateExpression(expr, env);
+        assertEquals("Error: 1", res);
     }
 }
@@ -45,4 +45,35 @@ public class EvaluatorTest {
         assertEquals(250, lastMoveEvent.toY());
         assertFalse(lastMoveEvent.isPenDown(), "Pen should be up for the home command move");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFunctionScopesShareTurtleButNotVariables() {
+        String input = """
+                set size = 10
+                define inner step
+                    set size = 99
+                    turn right 90
+                    move forward step
+                    color "red"
+                end define
+                define outer step
+                    pen up
+                    inner step
+                end define
+                outer 5
+                """;
+        Environment env = new Environment();
+        makeEvaluator().evaluate(new Parser(new Lexer(input)).parseProgram(), env);
+
+        assertEquals(255, env.getX());
+        assertEquals(250, env.getY());
+        assertEquals(90.0, env.getDirection());
+        assertEquals("red", env.getPenColor());
+        assertFalse(env.isPenDown());
+        assertEquals(10, env.get("size"), "A function's variables stay in its own scope");
+
+        Environment scope = new Environment(new Environment(env));
+        assertSame(env.turtle(), scope.turtle());
+        assertNotNull(scope.getFunction("inner"));
+    }
+}
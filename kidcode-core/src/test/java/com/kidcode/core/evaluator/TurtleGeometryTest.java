@@ -0,0 +1,83 @@
+package com.kidcode.core.evaluator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TurtleGeometryTest {
+
+    private static final int[] AMOUNTS = {
+            0, 1, -1, 90, -90, 359, -359, 360, -360, 361, -361, 720, -720, 1_000_000,
+            Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE + 1
+    };
+
+    @Test
+    public void testTablesMatchMath() {
+        for (int d = -400; d <= 400; d++) {
+            assertEquals(Math.sin(Math.toRadians(d)), TurtleGeometry.sin(d), "sin " + d);
+            assertEquals(Math.cos(Math.toRadians(d)), TurtleGeometry.cos(d), "cos " + d);
+        }
+        for (double d : new double[] {-0.0, 0.5, -12.25, 1e10, Double.NaN}) {
+            assertEquals(Math.sin(Math.toRadians(d)), TurtleGeometry.sin(d), "sin " + d);
+            assertEquals(Math.cos(Math.toRadians(d)), TurtleGeometry.cos(d), "cos " + d);
+        }
+    }
+
+    @Test
+    public void testTurnsMatchDoubleRemainder() {
+        for (int d = -359; d <= 359; d++) {
+            for (int amount : AMOUNTS) {
+                assertTurnsMatch(d, amount);
+            }
+        }
+        for (double d : new double[] {-0.0, 0.5, -12.25, 1e10, Double.NaN}) {
+            for (int amount : AMOUNTS) {
+                assertTurnsMatch(d, amount);
+            }
+        }
+    }
+
+    @Test
+    public void testRandomTurnSequences() {
+        Random random = new Random(3);
+        for (int run = 0; run < 100; run++) {
+            double expected = 0;
+            double actual = 0;
+            for (int i = 0; i < 1_000; i++) {
+                int amount = random.nextBoolean() ? random.nextInt(1_441) - 720 : random.nextInt();
+                if (random.nextBoolean()) {
+                    expected = (expected + amount) % 360;
+                    actual = TurtleGeometry.turnRight(actual, amount);
+                } else {
+                    expected = (expected - amount + 360) % 360;
+                    actual = TurtleGeometry.turnLeft(actual, amount);
+                }
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testMoveForwardTruncatesLikeBefore() {
+        Environment env = new Environment();
+        Random random = new Random(5);
+        for (int i = 0; i < 10_000; i++) {
+            env.setDirection(random.nextInt(719) - 359);
+            int steps = random.nextInt(2_001) - 1_000;
+            int x = env.getX();
+            int y = env.getY();
+            env.moveForward(steps);
+            assertEquals(x + (int) (steps * Math.sin(Math.toRadians(env.getDirection()))), env.getX());
+            assertEquals(y - (int) (steps * Math.cos(Math.toRadians(env.getDirection()))), env.getY());
+        }
+    }
+
+    private static void assertTurnsMatch(double direction, int amount) {
+        assertEquals((direction + amount) % 360, TurtleGeometry.turnRight(direction, amount),
+                "right " + amount + " from " + direction);
+        assertEquals((direction - amount + 360) % 360, TurtleGeometry.turnLeft(direction, amount),
+                "left " + amount + " from " + direction);
+    }
+}
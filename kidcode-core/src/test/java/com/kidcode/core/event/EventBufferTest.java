@@ -0,0 +1,71 @@
+package com.kidcode.core.event;
+
+import com.kidcode.core.KidCodeEngine;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventBufferTest {
+
+    @Test
+    public void testStoresEventsAcrossChunks() {
+        List<ExecutionEvent> expected = new ArrayList<>();
+        expected.add(new ExecutionEvent.ClearEvent());
+        for (int i = 0; i < EventBuffer.CHUNK_SIZE * 2 + 10; i++) {
+            expected.add(new ExecutionEvent.MoveEvent(i, -i, i + 1, -i - 1, i % 360, i % 2 == 0, i % 3 == 0 ? "red" : "blue"));
+        }
+        expected.add(new ExecutionEvent.SayEvent("done"));
+        expected.add(new ExecutionEvent.ErrorEvent("oops"));
+
+        EventBuffer buffer = new EventBuffer();
+        expected.forEach(buffer::accept);
+
+        assertEquals(expected.size(), buffer.size());
+        assertEquals(expected, buffer.events());
+    }
+
+    @Test
+    public void testCollapsesStateOnlyMoves() {
+        EventBuffer buffer = new EventBuffer();
+        buffer.accept(new ExecutionEvent.ClearEvent());
+        buffer.move(250, 250, 250, 250, 0, true, "blue");
+        buffer.move(250, 250, 250, 250, 0, false, "blue");   // pen up replaces the start position
+        buffer.move(250, 250, 250, 250, 0, false, "red");    // color change replaces pen up
+        buffer.move(250, 250, 250, 250, 0, false, "red");    // repeats the state, dropped
+        buffer.move(250, 250, 250, 240, 0, false, "red");
+        buffer.move(250, 240, 250, 240, 0, false, "red");    // nothing changed, dropped
+        buffer.move(250, 240, 250, 240, 90, false, "red");   // turn after a real move is kept
+
+        assertEquals(List.of(
+                new ExecutionEvent.ClearEvent(),
+                new ExecutionEvent.MoveEvent(250, 250, 250, 250, 0, false, "red"),
+                new ExecutionEvent.MoveEvent(250, 250, 250, 240, 0, false, "red"),
+                new ExecutionEvent.MoveEvent(250, 240, 250, 240, 90, false, "red")
+        ), buffer.events());
+    }
+
+    @Test
+    public void testReplayPassesMovesAsPrimitives() {
+        EventBuffer buffer = new KidCodeEngine().executeBuffered("move forward 10\nturn right 90\nmove forward 5\nsay \"hi\"");
+        List<ExecutionEvent> others = new ArrayList<>();
+        int[] moves = {0};
+        buffer.replay(new EventSink() {
+            @Override
+            public void accept(ExecutionEvent event) {
+                assertFalse(event instanceof ExecutionEvent.MoveEvent, "Moves should not be boxed on replay");
+                others.add(event);
+            }
+
+            @Override
+            public void move(int fromX, int fromY, int toX, int toY, double direction, boolean penDown, String color) {
+                moves[0]++;
+            }
+        });
+
+        assertEquals(4, moves[0]);
+        assertEquals(List.of(new ExecutionEvent.ClearEvent(), new ExecutionEvent.SayEvent("hi")), others);
+    }
+}
@@ -0,0 +1,159 @@
+package com.kidcode.core.event;
+
+import com.kidcode.core.KidCodeEngine;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentCoalescerTest {
+
+    private static List<ExecutionEvent> coalesced(String code, double tolerance) {
+        List<ExecutionEvent> events = new ArrayList<>();
+        SegmentCoalescer coalescer = new SegmentCoalescer(events::add, tolerance);
+        new KidCodeEngine().execute(code, coalescer);
+        coalescer.flush();
+        return events;
+    }
+
+    private static List<ExecutionEvent> plain(String code) {
+        List<ExecutionEvent> events = new ArrayList<>();
+        new KidCodeEngine().execute(code, events::add);
+        return events;
+    }
+
+    private static List<ExecutionEvent.MoveEvent> lines(List<ExecutionEvent> events) {
+        return events.stream()
+                .filter(e -> e instanceof ExecutionEvent.MoveEvent m && m.isPenDown()
+                        && (m.fromX() != m.toX() || m.fromY() != m.toY()))
+                .map(e -> (ExecutionEvent.MoveEvent) e)
+                .toList();
+    }
+
+    private static ExecutionEvent.MoveEvent lastMove(List<ExecutionEvent> events) {
+        for (int i = events.size() - 1; i >= 0; i--) {
+            if (events.get(i) instanceof ExecutionEvent.MoveEvent m) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    private static double distance(double x, double y, ExecutionEvent.MoveEvent line) {
+        double dx = line.toX() - line.fromX(), dy = line.toY() - line.fromY();
+        double t = ((x - line.fromX()) * dx + (y - line.fromY()) * dy) / (dx * dx + dy * dy);
+        t = Math.max(0, Math.min(1, t));
+        return Math.hypot(x - (line.fromX() + t * dx), y - (line.fromY() + t * dy));
+    }
+
+    // Every point of every line in a lies within tolerance of a line in b of the same color.
+    private static void assertCovered(List<ExecutionEvent.MoveEvent> a, List<ExecutionEvent.MoveEvent> b, double tolerance) {
+        for (ExecutionEvent.MoveEvent line : a) {
+            for (double t = 0; t <= 1; t += 0.125) {
+                double x = line.fromX() + t * (line.toX() - line.fromX());
+                double y = line.fromY() + t * (line.toY() - line.fromY());
+                boolean covered = b.stream().anyMatch(o -> o.color().equals(line.color()) && distance(x, y, o) <= tolerance + 1e-9);
+                assertTrue(covered, "(" + x + ", " + y + ") of " + line + " is not drawn");
+            }
+        }
+    }
+
+    @Test
+    public void testMergesStraightRuns() {
+        List<ExecutionEvent> events = coalesced("repeat 100\n move forward 1\nend repeat", 0);
+        assertEquals(List.of(
+                new ExecutionEvent.ClearEvent(),
+                new ExecutionEvent.MoveEvent(250, 250, 250, 150, 0, true, "blue")), events);
+    }
+
+    @Test
+    public void testKeepsTheDrawingAndFinalState() {
+        String code = """
+                repeat 4
+                    repeat 10
+                        move forward 5
+                    end repeat
+                    turn right 90
+                end repeat
+                color "red"
+                repeat 36
+                    move forward 3
+                    turn left 10
+                end repeat
+                pen up
+                move forward 20
+                move forward 20
+                pen down
+                say "half"
+                color "green"
+                move forward 10
+                turn right 180
+                move forward 30
+                turn right 45
+                pen up
+                """;
+        List<ExecutionEvent> original = plain(code);
+        List<ExecutionEvent> merged = coalesced(code, 0);
+
+        assertTrue(merged.size() < original.size() / 2, merged.size() + " of " + original.size());
+        assertCovered(lines(original), lines(merged), 0);
+        assertCovered(lines(merged), lines(original), 0);
+        ExecutionEvent.MoveEvent end = lastMove(original);
+        ExecutionEvent.MoveEvent mergedEnd = lastMove(merged);
+        assertEquals(List.of(end.toX(), end.toY(), end.newDirection(), end.isPenDown(), end.color()),
+                List.of(mergedEnd.toX(), mergedEnd.toY(), mergedEnd.newDirection(), mergedEnd.isPenDown(), mergedEnd.color()));
+    }
+
+    @Test
+    public void testSendsHeldMovesBeforeOtherEvents() {
+        List<ExecutionEvent> events = coalesced("move forward 10\nturn right 90\nsay \"hi\"\nmove forward 10", 0);
+        assertEquals(List.of(
+                new ExecutionEvent.ClearEvent(),
+                new ExecutionEvent.MoveEvent(250, 250, 250, 240, 0, true, "blue"),
+                new ExecutionEvent.MoveEvent(250, 240, 250, 240, 90, true, "blue"),
+                new ExecutionEvent.SayEvent("hi"),
+                new ExecutionEvent.MoveEvent(250, 240, 260, 240, 90, true, "blue")), events);
+    }
+
+    @Test
+    public void testToleranceSimplifiesCurves() {
+        String circle = "repeat 72\n move forward 10\n turn right 5\nend repeat";
+        List<ExecutionEvent.MoveEvent> original = lines(plain(circle));
+        List<ExecutionEvent.MoveEvent> exact = lines(coalesced(circle, 0));
+        List<ExecutionEvent.MoveEvent> simplified = lines(coalesced(circle, 2));
+
+        assertTrue(simplified.size() * 2 < exact.size(), simplified.size() + " of " + exact.size());
+        assertCovered(original, simplified, 2);
+        assertCovered(simplified, original, 2);
+    }
+
+    @Test
+    public void testLongLinesStayConnected() {
+        List<ExecutionEvent.MoveEvent> sent = new ArrayList<>();
+        SegmentCoalescer coalescer = new SegmentCoalescer(new EventSink() {
+            @Override
+            public void accept(ExecutionEvent event) {
+                fail("Only moves expected");
+            }
+
+            @Override
+            public void move(int fromX, int fromY, int toX, int toY, double direction, boolean penDown, String color) {
+                sent.add(new ExecutionEvent.MoveEvent(fromX, fromY, toX, toY, direction, penDown, color));
+            }
+        });
+        int segments = SegmentCoalescer.MAX_POINTS * 3;
+        for (int i = 0; i < segments; i++) {
+            coalescer.move(i, i % 2, i + 1, (i + 1) % 2, 0, true, "red");   // a zigzag, nothing to merge
+        }
+        coalescer.flush();
+
+        assertEquals(segments, sent.size());
+        for (int i = 1; i < sent.size(); i++) {
+            assertEquals(sent.get(i - 1).toX(), sent.get(i).fromX());
+            assertEquals(sent.get(i - 1).toY(), sent.get(i).fromY());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new SegmentCoalescer(event -> {}, -1));
+    }
+}
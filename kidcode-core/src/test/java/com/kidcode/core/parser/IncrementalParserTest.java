@@ -0,0 +1,107 @@
+package com.kidcode.core.parser;
+
+import com.kidcode.core.lexer.Lexer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalParserTest {
+
+    private static final String PROGRAM = """
+            # draw some squares
+            set size = 40
+            set colors = ["red", "blue"]
+            define square size
+                repeat 4
+                    move forward size
+                    turn right 90
+                end repeat
+            end define
+            repeat 3
+                color colors[0]
+                square size
+                turn left 120
+            end repeat
+            if size == 40
+                say "big"
+            else
+                say "small " + size
+            end if
+            pen up
+            home
+            """;
+
+    private static final String[] FRAGMENTS = {
+            "\n", " ", "move forward 10\n", "repeat 2\n", "end repeat\n", "end", "if ", "else\n",
+            "say \"hi\"\n", "\"", "[", "]", "(", ")", "+", "=", "set x = ", "define f\n", "# note\n", "42"
+    };
+
+    @Test
+    public void testStartsWithFullParse() {
+        assertMatchesFullParse(new IncrementalParser(PROGRAM));
+    }
+
+    @Test
+    public void testRandomEditsMatchFullParse() {
+        Random random = new Random(12);
+        IncrementalParser parser = new IncrementalParser(PROGRAM);
+        for (int i = 0; i < 5_000; i++) {
+            String source = parser.source();
+            int start = random.nextInt(source.length() + 1);
+            int end = Math.min(source.length(), start + random.nextInt(8));
+            String replacement = random.nextBoolean() ? FRAGMENTS[random.nextInt(FRAGMENTS.length)] : "";
+            if (random.nextInt(4) == 0) {
+                parser.update(source.substring(0, start) + replacement + source.substring(end));
+            } else {
+                parser.edit(start, end, replacement);
+            }
+            assertMatchesFullParse(parser);
+            if (parser.source().length() > 4 * PROGRAM.length()) {
+                parser.update(PROGRAM);
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyDocument() {
+        IncrementalParser parser = new IncrementalParser("");
+        assertTrue(parser.statements().isEmpty());
+        parser.edit(0, 0, "move forward 5");
+        assertMatchesFullParse(parser);
+        parser.update("");
+        assertMatchesFullParse(parser);
+    }
+
+    @Test
+    public void testOneLineEditReparsesOneStatement() {
+        String document = "move forward 10\nturn right 5\n".repeat(2_000);
+        IncrementalParser parser = new IncrementalParser(document);
+        int offset = document.length() / 2;
+        parser.edit(offset, offset, "say \"hello\"\n");
+        assertMatchesFullParse(parser);
+        assertTrue(parser.lastReparsed() <= 2, "re-parsed " + parser.lastReparsed() + " statements");
+    }
+
+    @Test
+    public void testErrorLinesMoveWithTheirStatements() {
+        IncrementalParser parser = new IncrementalParser("move forward 1\nturn right\nmove forward 2\n");
+        String before = parser.errors().get(0);
+        parser.edit(0, 0, "\n\n");
+        assertMatchesFullParse(parser);
+        assertNotEquals(before, parser.errors().get(0));
+    }
+
+    @Test
+    public void testEditOutsideDocumentThrows() {
+        IncrementalParser parser = new IncrementalParser("home");
+        assertThrows(IndexOutOfBoundsException.class, () -> parser.edit(2, 10, "x"));
+    }
+
+    private static void assertMatchesFullParse(IncrementalParser incremental) {
+        Parser full = new Parser(new Lexer(incremental.source()));
+        assertEquals(full.parseProgram(), incremental.statements(), incremental.source());
+        assertEquals(full.getErrors(), incremental.errors(), incremental.source());
+    }
+}
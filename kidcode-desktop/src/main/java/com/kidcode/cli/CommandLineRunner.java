@@ -5,7 +5,6 @@ import com.kidcode.core.event.ExecutionEvent;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.io.IOException;
-import java.util.List;
 
 public class CommandLineRunner {
     public static void main(String[] args) {
@@ -34,9 +33,8 @@ public class CommandLineRunner {
         
         System.out.println("--- Executing KidCode Script ---");
         
-        List<ExecutionEvent> events = engine.execute(sourceCode);
-        
-        for (ExecutionEvent event : events) {
+        // Print events as they are produced instead of waiting for the whole run.
+        engine.execute(sourceCode, event -> {
             if (event instanceof ExecutionEvent.SayEvent e) {
                 System.out.println("Cody says: " + e.message());
             } else if (event instanceof ExecutionEvent.MoveEvent e) {
@@ -44,7 +42,7 @@ public class CommandLineRunner {
             } else if (event instanceof ExecutionEvent.ErrorEvent e) {
                 System.err.println("ERROR: " + e.errorMessage());
             }
-        }
+        });
         
         System.out.println("--- Script Finished ---");
     }
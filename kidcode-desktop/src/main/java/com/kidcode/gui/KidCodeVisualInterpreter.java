@@ -5,8 +5,10 @@ import com.kidcode.core.event.ExecutionEvent;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.ArrayList;
+import java.awt.image.BufferedImage;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.fife.ui.rsyntaxtextarea.*;
 import org.fife.ui.rtextarea.RTextScrollPane;
 
@@ -15,6 +17,21 @@ public class KidCodeVisualInterpreter extends JFrame {
     private final RSyntaxTextArea codeArea;
     private final JTextArea outputArea;
     private final KidCodeEngine engine;
+    // Runs programs one at a time, off the event thread.
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "kidcode-runner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Shows the current run's events, a frame's worth at a time.
+    private final Timer frameTimer = new Timer(FRAME_MILLIS, e -> playFrame());
+    private PlaybackQueue playback; // the current run's, until it has all been shown
+    private List<ExecutionEvent> frameEvents = List.of();
+    private int frameIndex = 0;
+
+    private static final int FRAME_MILLIS = 16;
+    // Time a frame may spend drawing before leaving the rest to the next one.
+    private static final long FRAME_BUDGET_NANOS = 12_000_000;
 
     public KidCodeVisualInterpreter() {
         this.engine = new KidCodeEngine();
@@ -64,10 +81,10 @@ public class KidCodeVisualInterpreter extends JFrame {
 
         JPanel buttonPanel = new JPanel(new FlowLayout());
         JButton runButton = new JButton("Run Code");
-        runButton.addActionListener(e -> new Thread(this::runCode).start());
+        runButton.addActionListener(e -> runCode());
         buttonPanel.add(runButton);
         JButton stopButton = new JButton("Stop");
-        stopButton.addActionListener(e -> engine.stopExecution());
+        stopButton.addActionListener(e -> stopRun());
         buttonPanel.add(stopButton);
         controlPanel.add(buttonPanel, BorderLayout.SOUTH);
 
@@ -121,28 +138,75 @@ public class KidCodeVisualInterpreter extends JFrame {
         };
     }
 
+    // Starts the program in the editor, stopping any run still going.
     private void runCode() {
         String code = codeArea.getText();
-        List<ExecutionEvent> events = engine.execute(code);
-        SwingUtilities.invokeLater(() -> {
-            for (ExecutionEvent event : events) {
-                if (event instanceof ExecutionEvent.ClearEvent) {
-            drawingPanel.clear();
-            outputArea.setText("");
-                } else if (event instanceof ExecutionEvent.MoveEvent e) {
-                    if (e.isPenDown() && (e.fromX() != e.toX() || e.fromY() != e.toY())) {
-                        drawingPanel.drawLine(e.fromX(), e.fromY(), e.toX(), e.toY(), parseAwtColor(e.color()));
+        stopRun();
+        PlaybackQueue queue = new PlaybackQueue();
+        playback = queue;
+        runner.execute(() -> {
+            try {
+                engine.execute(code, queue, queue::isCancelled);
+            } finally {
+                queue.finish();
+            }
+        });
+        frameTimer.start();
+    }
+
+    private void stopRun() {
+        if (playback != null) {
+            engine.stopExecution();
+            playback.cancel();
+            playback = null;
+            frameEvents = List.of();
+            frameIndex = 0;
+            frameTimer.stop();
+        }
+    }
+
+    // Called by frameTimer: shows what the runner has produced since the last frame.
+    private void playFrame() {
+        long deadline = System.nanoTime() + FRAME_BUDGET_NANOS;
+        StringBuilder output = new StringBuilder();
+        Color outputColor = null;
+        while (true) {
+            if (frameIndex == frameEvents.size()) {
+                frameEvents = playback.drain();
+                frameIndex = 0;
+                if (frameEvents.isEmpty()) {
+                    if (playback.isDone()) {
+                        playback = null;
+                        frameTimer.stop();
                     }
-                    drawingPanel.updateCodyState(e.toX(), e.toY(), e.newDirection());
-                } else if (event instanceof ExecutionEvent.SayEvent e) {
-                    outputArea.setForeground(Color.BLACK);
-                    outputArea.append("Cody says: " + e.message() + "\n");
-                } else if (event instanceof ExecutionEvent.ErrorEvent e) {
-                    outputArea.setForeground(Color.RED);
-                    outputArea.append("ERROR: " + e.errorMessage() + "\n");
+                    break;
                 }
             }
-        });
+            ExecutionEvent event = frameEvents.get(frameIndex++);
+            if (event instanceof ExecutionEvent.ClearEvent) {
+                drawingPanel.clear();
+                outputArea.setText("");
+                output.setLength(0);
+            } else if (event instanceof ExecutionEvent.MoveEvent e) {
+                if (e.isPenDown() && (e.fromX() != e.toX() || e.fromY() != e.toY())) {
+                    drawingPanel.drawLine(e.fromX(), e.fromY(), e.toX(), e.toY(), parseAwtColor(e.color()));
+                }
+                drawingPanel.updateCodyState(e.toX(), e.toY(), e.newDirection());
+            } else if (event instanceof ExecutionEvent.SayEvent e) {
+                outputColor = Color.BLACK;
+                output.append("Cody says: ").append(e.message()).append('\n');
+            } else if (event instanceof ExecutionEvent.ErrorEvent e) {
+                outputColor = Color.RED;
+                output.append("ERROR: ").append(e.errorMessage()).append('\n');
+            }
+            if ((frameIndex & 255) == 0 && System.nanoTime() - deadline > 0) {
+                break;
+            }
+        }
+        if (outputColor != null) {
+            outputArea.setForeground(outputColor);
+            outputArea.append(output.toString());
+        }
     }
     
     private void openFile() {
@@ -167,8 +231,28 @@ public class KidCodeVisualInterpreter extends JFrame {
         }
     }
     
+    /**
+     * Cody's canvas. Lines are rasterized once, when they are drawn, into an
+     * offscreen image; painting only copies the damaged part of that image and
+     * draws Cody on top, so a repaint costs the same however big the drawing is.
+     * The lines themselves are not kept, so memory doesn't grow with the drawing.
+     */
     static class DrawingPanel extends JPanel {
-        private final List<Line> lines = new ArrayList<>();
+        private static final BasicStroke LINE_STROKE = new BasicStroke(2);
+        private static final BasicStroke CODY_OUTLINE = new BasicStroke(1.5f);
+        private static final Color CODY_COLOR = new Color(255, 100, 0);
+        // Cody's pointer shape around its hotspot, before rotating to its heading.
+        private static final Polygon CODY_SHAPE = new Polygon(
+                new int[] {0, 10, 0, -4},   // tip, bottom-right, indented base center, bottom-left
+                new int[] {-18, 7, 0, 7},
+                4);
+        // Covers Cody at any heading, outline included.
+        private static final int CODY_RADIUS = 21;
+        // How far a 2px line's square caps reach beyond its end points.
+        private static final int LINE_MARGIN = 2;
+
+        private BufferedImage canvas;
+        private Graphics2D canvasGraphics;
         private int codyX = 250;
         private int codyY = 250;
         private double codyDirection = 0; // In degrees
@@ -179,70 +263,82 @@ public class KidCodeVisualInterpreter extends JFrame {
         }
 
         public void drawLine(int x1, int y1, int x2, int y2, Color color) {
-            lines.add(new Line(x1, y1, x2, y2, color));
+            ensureCanvas(getWidth(), getHeight());
+            canvasGraphics.setColor(color);
+            canvasGraphics.drawLine(x1, y1, x2, y2);
+            repaint(Math.min(x1, x2) - LINE_MARGIN, Math.min(y1, y2) - LINE_MARGIN,
+                    Math.abs(x2 - x1) + 2 * LINE_MARGIN + 1, Math.abs(y2 - y1) + 2 * LINE_MARGIN + 1);
         }
 
         public void updateCodyState(int x, int y, double direction) {
+            if (x == codyX && y == codyY && direction == codyDirection) {
+                return;
+            }
+            repaintCody();
             this.codyX = x;
             this.codyY = y;
             this.codyDirection = direction;
-            repaint();
+            repaintCody();
         }
 
         public void clear() {
-            lines.clear();
+            if (canvas != null) {
+                canvasGraphics.setComposite(AlphaComposite.Clear);
+                canvasGraphics.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+                canvasGraphics.setComposite(AlphaComposite.SrcOver);
+            }
+            repaint();
             resetCody();
         }
 
         public void resetCody() {
-            this.codyX = 250;
-            this.codyY = 250;
-            this.codyDirection = 0;
-            repaint();
+            updateCodyState(250, 250, 0);
         }
 
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
             Graphics2D g2d = (Graphics2D) g;
-            drawLines(g2d);
+            ensureCanvas(getWidth(), getHeight());
+            // Clipped by Swing to the damaged area, so this copies only that much.
+            g2d.drawImage(canvas, 0, 0, null);
             drawCody(g2d);
         }
 
-        private void drawLines(Graphics2D g2d) {
-            for (Line line : lines) {
-                g2d.setColor(line.color);
-                g2d.setStroke(new BasicStroke(2));
-                g2d.drawLine(line.x1, line.y1, line.x2, line.y2);
+        // Makes the image at least this big, copying the old one into it if it had to grow.
+        private void ensureCanvas(int width, int height) {
+            if (canvas != null && canvas.getWidth() >= width && canvas.getHeight() >= height) {
+                return;
+            }
+            BufferedImage previous = canvas;
+            if (canvasGraphics != null) {
+                canvasGraphics.dispose();
             }
+            Dimension preferred = getPreferredSize();
+            canvas = new BufferedImage(Math.max(preferred.width, width), Math.max(preferred.height, height),
+                    BufferedImage.TYPE_INT_ARGB);
+            canvasGraphics = canvas.createGraphics();
+            if (previous != null) {
+                canvasGraphics.drawImage(previous, 0, 0, null);
+            }
+            canvasGraphics.setStroke(LINE_STROKE);
+        }
+
+        private void repaintCody() {
+            repaint(codyX - CODY_RADIUS, codyY - CODY_RADIUS, 2 * CODY_RADIUS + 1, 2 * CODY_RADIUS + 1);
         }
 
         private void drawCody(Graphics2D g2d) {
             Graphics2D g2dCopy = (Graphics2D) g2d.create();
             g2dCopy.translate(codyX, codyY);
             g2dCopy.rotate(Math.toRadians(codyDirection));
-
-            Polygon pointerShape = new Polygon();
-            pointerShape.addPoint(0, -18);   // The very tip (hotspot)
-            pointerShape.addPoint(10, 7);    // The bottom-right corner
-            pointerShape.addPoint(0, 0);     // The indented base center
-            pointerShape.addPoint(-4, 7);    // The bottom-left corner (closer to center for asymmetry)
-
-            g2dCopy.setColor(new Color(255, 100, 0));
-            g2dCopy.fill(pointerShape);
+            g2dCopy.setColor(CODY_COLOR);
+            g2dCopy.fill(CODY_SHAPE);
             g2dCopy.setColor(Color.BLACK);
-            g2dCopy.setStroke(new BasicStroke(1.5f));
-            g2dCopy.draw(pointerShape);
+            g2dCopy.setStroke(CODY_OUTLINE);
+            g2dCopy.draw(CODY_SHAPE);
             g2dCopy.dispose();
         }
-
-        static class Line {
-            int x1, y1, x2, y2;
-            Color color;
-            Line(int x1, int y1, int x2, int y2, Color color) {
-                this.x1 = x1; this.y1 = y1; this.x2 = x2; this.y2 = y2; this.color = color;
-            }
-        }
     }
     
     public static void main(String[] args) {
@@ -0,0 +1,69 @@
+package com.kidcode.gui;
+
+import com.kidcode.core.event.EventSink;
+import com.kidcode.core.event.ExecutionEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands events from the thread running a program to the Swing event thread in
+ * batches. The runner adds events as they are produced; a timer on the event
+ * thread takes whatever has piled up once per frame.
+ *
+ * At most {@link #MAX_PENDING} events wait at a time. A runner that gets that far
+ * ahead of the screen blocks until the next frame takes them, so a long program
+ * never holds more than that in memory.
+ */
+final class PlaybackQueue implements EventSink {
+    static final int MAX_PENDING = 1 << 16;
+
+    private List<ExecutionEvent> pending = new ArrayList<>();
+    private boolean finished = false;
+    private volatile boolean cancelled = false;
+
+    @Override
+    public synchronized void accept(ExecutionEvent event) {
+        while (pending.size() >= MAX_PENDING && !cancelled) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+        }
+        if (!cancelled) {
+            pending.add(event);
+        }
+    }
+
+    /** Called by the runner once the program has ended. */
+    synchronized void finish() {
+        finished = true;
+    }
+
+    /** Drops what is waiting and everything still to come, and releases a blocked runner. */
+    synchronized void cancel() {
+        cancelled = true;
+        pending.clear();
+        notifyAll();
+    }
+
+    /** Read by the engine as the run's stop signal. */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** The events added since the last call, oldest first. */
+    synchronized List<ExecutionEvent> drain() {
+        List<ExecutionEvent> batch = pending;
+        pending = new ArrayList<>();
+        notifyAll();
+        return batch;
+    }
+
+    /** True once the program has ended and every event has been drained. */
+    synchronized boolean isDone() {
+        return (finished || cancelled) && pending.isEmpty();
+    }
+}
@@ -0,0 +1,72 @@
+package com.kidcode.web.cache;
+
+import com.kidcode.core.parser.IncrementalParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The last parse of each document open in an editor, keyed by an id the page
+ * picks, so validating after a keystroke re-parses only the statements the edit
+ * touched instead of the whole program.
+ *
+ * Least-recently-used and bounded by document count and total source length.
+ * Settings: {@code kidcode.editor.max-documents} (default 256) and
+ * {@code kidcode.editor.max-source-chars} (default 4,000,000).
+ */
+@Component
+public class EditorDocuments {
+    private final int maxDocuments;
+    private final long maxSourceChars;
+    private final LinkedHashMap<String, IncrementalParser> documents = new LinkedHashMap<>(16, 0.75f, true);
+
+    public EditorDocuments(@Value("${kidcode.editor.max-documents:256}") int maxDocuments,
+                           @Value("${kidcode.editor.max-source-chars:4000000}") long maxSourceChars) {
+        this.maxDocuments = maxDocuments;
+        this.maxSourceChars = maxSourceChars;
+    }
+
+    /** Brings the document up to date with the editor's text and returns its parse errors. */
+    public List<String> errors(String documentId, String code) {
+        IncrementalParser parser;
+        synchronized (this) {
+            parser = documents.get(documentId);
+        }
+        if (parser == null) {
+            parser = new IncrementalParser(code);
+            if (code.length() <= maxSourceChars) {
+                put(documentId, parser);
+            }
+            return parser.errors();
+        }
+        // Two tabs sharing an id just take turns; each update diffs against the other's text.
+        synchronized (parser) {
+            parser.update(code);
+            List<String> errors = parser.errors();
+            trim();
+            return errors;
+        }
+    }
+
+    private synchronized void put(String documentId, IncrementalParser parser) {
+        documents.put(documentId, parser);
+        trim();
+    }
+
+    // Documents grow as they are edited, so the total is recounted rather than tracked.
+    private synchronized void trim() {
+        long sourceChars = 0;
+        for (IncrementalParser parser : documents.values()) {
+            sourceChars += parser.source().length();
+        }
+        Iterator<Map.Entry<String, IncrementalParser>> eldest = documents.entrySet().iterator();
+        while (documents.size() > maxDocuments || sourceChars > maxSourceChars) {
+            sourceChars -= eldest.next().getValue().source().length();
+            eldest.remove();
+        }
+    }
+}
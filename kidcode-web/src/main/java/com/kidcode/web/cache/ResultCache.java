@@ -0,0 +1,187 @@
+package com.kidcode.web.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the serialized, gzip-compressed response of popular programs, so the
+ * execute endpoints can answer them without running anything. KidCode has no I/O
+ * or randomness, so a program that ran to completion always produces the same
+ * bytes; runs that hit the instruction limit or were stopped are never stored.
+ *
+ * A response is stored the second time its program and format are seen, so
+ * one-off programs don't push out the examples everyone runs. The cache is
+ * least-recently-used and bounded by entry count and total compressed bytes;
+ * responses larger than {@code max-entry-bytes} once compressed are not kept.
+ * Programs are keyed by a digest of their text, so large sources cost no more
+ * to remember than small ones.
+ *
+ * Off by default. Settings: {@code kidcode.result-cache.enabled},
+ * {@code kidcode.result-cache.max-entries} (default 256),
+ * {@code kidcode.result-cache.max-bytes} (default 64 MB) and
+ * {@code kidcode.result-cache.max-entry-bytes} (default 1 MB).
+ */
+@Component
+public class ResultCache {
+    // Programs are known by their SHA-256 digest, so memory doesn't grow with their
+    // size; the format is one of the server's own strings.
+    private record Key(String digest, String format) {
+        static Key of(String code, String format) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(code.getBytes(StandardCharsets.UTF_8));
+                return new Key(HexFormat.of().formatHex(digest), format);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Programs seen once; a second sighting makes a response worth storing.
+    private final LinkedHashMap<Key, Boolean> seen = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResultCache(@Value("${kidcode.result-cache.enabled:false}") boolean enabled,
+                       @Value("${kidcode.result-cache.max-entries:256}") int maxEntries,
+                       @Value("${kidcode.result-cache.max-bytes:67108864}") long maxBytes,
+                       @Value("${kidcode.result-cache.max-entry-bytes:1048576}") int maxEntryBytes) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /** The gzip-compressed response for this program and format, or null. */
+    public byte[] get(String code, String format) {
+        if (!enabled) {
+            return null;
+        }
+        byte[] cached;
+        synchronized (this) {
+            cached = entries.get(Key.of(code, format));
+        }
+        (cached != null ? hits : misses).increment();
+        return cached;
+    }
+
+    /**
+     * Wraps the response stream of a run that missed the cache. Everything written
+     * also goes into a compressed copy, which {@link Recorder#store()} adds to the
+     * cache once the run is known to have completed. Returns the stream unchanged
+     * when the response isn't worth recording.
+     */
+    public Recorder record(String code, String format, OutputStream out) {
+        if (!enabled) {
+            return new Recorder(out, null);
+        }
+        Key key = Key.of(code, format);
+        return new Recorder(out, secondSighting(key) ? key : null);
+    }
+
+    private synchronized boolean secondSighting(Key key) {
+        if (seen.remove(key) != null) {
+            return true;
+        }
+        seen.put(key, Boolean.TRUE);
+        Iterator<Key> eldest = seen.keySet().iterator();
+        while (seen.size() > maxEntries * 4) {
+            eldest.next();
+            eldest.remove();
+        }
+        return false;
+    }
+
+    private synchronized void put(Key key, byte[] compressed) {
+        byte[] previous = entries.put(key, compressed);
+        bytes += compressed.length - (previous != null ? previous.length : 0);
+        Iterator<byte[]> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /** Passes writes through to the response while keeping a compressed copy. */
+    public final class Recorder extends FilterOutputStream {
+        private final Key key;
+        private ByteArrayOutputStream copy;
+        private GZIPOutputStream gzip;
+
+        private Recorder(OutputStream out, Key key) {
+            super(out);
+            this.key = key;
+            if (key != null) {
+                copy = new ByteArrayOutputStream();
+                try {
+                    gzip = new GZIPOutputStream(copy);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (gzip != null) {
+                gzip.write(b, off, len);
+                if (copy.size() > maxEntryBytes) {
+                    // Too big to be worth keeping; stop copying.
+                    gzip = null;
+                    copy = null;
+                }
+            }
+        }
+
+        /** Adds the recorded response to the cache. Call only for completed runs. */
+        public void store() throws IOException {
+            if (gzip == null) {
+                return;
+            }
+            gzip.finish();
+            if (copy.size() <= maxEntryBytes) {
+                put(key, copy.toByteArray());
+            }
+            gzip = null;
+            copy = null;
+        }
+    }
+}
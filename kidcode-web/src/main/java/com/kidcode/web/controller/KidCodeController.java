@@ -1,12 +1,37 @@
 package com.kidcode.web.controller;
 
-import com.kidcode.core.KidCodeEngine;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.kidcode.core.ExecutionStatus;
+import com.kidcode.core.ProgramCache;
+import com.kidcode.core.event.EventBuffer;
+import com.kidcode.core.event.EventSink;
 import com.kidcode.core.event.ExecutionEvent;
-import com.kidcode.core.lexer.Lexer;
-import com.kidcode.core.parser.Parser;
+import com.kidcode.core.event.SegmentCoalescer;
+import com.kidcode.web.cache.EditorDocuments;
+import com.kidcode.web.cache.ResultCache;
+import com.kidcode.web.execution.ExecutionScheduler;
+import com.kidcode.web.render.PngRenderer;
+import com.kidcode.web.render.SvgRenderer;
+import com.kidcode.web.stream.BinaryEventWriter;
+import com.kidcode.web.stream.NdjsonEventWriter;
+import com.kidcode.web.stream.StreamingEventWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/api") // All routes in this controller will start with /api
@@ -17,51 +42,216 @@ public class KidCodeController {
     // Spring Boot will automatically deserialize {"code": "..."} into this object.
     private record CodeExecutionRequest(String code) {}
 
+    // The editor also sends an id for its document, so validation can re-parse only what changed.
+    private record ValidationRequest(String code, String documentId) {}
+
     // A record for the validation error response
-    public record ValidationError(String message, int lineNumber) {}
+    public record ValidationError(String message, int lineNumber) {
+        public static ValidationError of(String errorString) {
+            // Simple parsing to extract line number. Example error: "Error line 5: ..."
+            int lineNumber = 1; // Default
+            try {
+                String[] parts = errorString.split(":");
+                String linePart = parts[0].replaceAll("\\D+", "");
+                if (!linePart.isEmpty()) {
+                    lineNumber = Integer.parseInt(linePart);
+                }
+            } catch (Exception e) {
+                // Ignore parsing errors, just use line 1
+            }
+            return new ValidationError(errorString, lineNumber);
+        }
+    }
+
+    // Hit and miss counts of the parsed-program and result caches.
+    public record CacheStats(long hits, long misses, int size, long resultHits, long resultMisses, long resultBytes) {}
+
+    // Bounds on /render's image size, so one request can't ask for a huge image.
+    private static final int MIN_RENDER_SIZE = 16;
+    private static final int MAX_RENDER_SIZE = 2000;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter eventListWriter;
+    private final ExecutionScheduler scheduler;
+    private final ProgramCache programCache;
+    private final ResultCache resultCache;
+    private final EditorDocuments editorDocuments;
+
+    public KidCodeController(ObjectMapper objectMapper, ExecutionScheduler scheduler, ProgramCache programCache,
+                             ResultCache resultCache, EditorDocuments editorDocuments) {
+        this.objectMapper = objectMapper;
+        // Spring owns the response stream; Jackson must not close it.
+        this.eventListWriter = objectMapper.writerFor(new TypeReference<List<ExecutionEvent>>() {})
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.scheduler = scheduler;
+        this.programCache = programCache;
+        this.resultCache = resultCache;
+        this.editorDocuments = editorDocuments;
+    }
 
+    // Runs the program to completion and returns every event as one JSON array.
     @PostMapping("/execute")
-    public List<ExecutionEvent> executeCode(@RequestBody CodeExecutionRequest request) {
-        // Check for null or empty code to be safe
-        if (request.code() == null || request.code().trim().isEmpty()) {
-            return List.of(new ExecutionEvent.ErrorEvent("Code cannot be empty."));
+    public WebAsyncTask<Void> executeCode(
+            @RequestBody CodeExecutionRequest request,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        return respond(request.code(), MediaType.APPLICATION_JSON, acceptEncoding, response, (out, events) -> {
+            EventBuffer buffer = new EventBuffer();
+            events.accept(buffer);
+            eventListWriter.writeValue(out, buffer.events());
+        });
+    }
+
+    // Streams events as newline-delimited JSON while the program runs, so the
+    // browser can start drawing before the last event has been produced.
+    @PostMapping("/execute/stream")
+    public WebAsyncTask<Void> executeCodeStream(
+            @RequestBody CodeExecutionRequest request,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        return respond(request.code(), MediaType.APPLICATION_NDJSON, acceptEncoding, response,
+                streaming(out -> new NdjsonEventWriter(objectMapper, out)));
+    }
+
+    // Compact binary variant of both execute endpoints, picked by content negotiation
+    // ("Accept: application/vnd.kidcode.events"). See BinaryEventWriter for the format.
+    @PostMapping(value = {"/execute", "/execute/stream"}, produces = BinaryEventWriter.MEDIA_TYPE)
+    public WebAsyncTask<Void> executeCodeBinary(
+            @RequestBody CodeExecutionRequest request,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        return respond(request.code(), MediaType.parseMediaType(BinaryEventWriter.MEDIA_TYPE), acceptEncoding, response,
+                streaming(BinaryEventWriter::new));
+    }
+
+    // Runs the program and returns only the finished picture, as a PNG or an SVG of
+    // its lines, for thumbnails and galleries that don't need the events.
+    // size is the image's width and height in pixels; the 500x500 canvas is scaled to it.
+    @PostMapping("/render")
+    public WebAsyncTask<Void> render(
+            @RequestBody CodeExecutionRequest request,
+            @RequestParam(defaultValue = "png") String format,
+            @RequestParam(defaultValue = "500") int size,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        if (size < MIN_RENDER_SIZE || size > MAX_RENDER_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "size must be between " + MIN_RENDER_SIZE + " and " + MAX_RENDER_SIZE);
+        }
+        return switch (format) {
+            case "png" -> respond(request.code(), MediaType.IMAGE_PNG, "png;size=" + size, acceptEncoding, response,
+                    (out, events) -> {
+                        PngRenderer png = new PngRenderer(size);
+                        events.accept(png);
+                        png.writeTo(out);
+                    });
+            case "svg" -> respond(request.code(), MediaType.parseMediaType(SvgRenderer.MEDIA_TYPE), "svg;size=" + size,
+                    acceptEncoding, response, (out, events) -> {
+                        SvgRenderer svg = new SvgRenderer(out, size);
+                        // Straight runs of short moves become one path command each.
+                        SegmentCoalescer coalescer = new SegmentCoalescer(svg);
+                        events.accept(coalescer);
+                        coalescer.flush();
+                        svg.finish();
+                    });
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be png or svg");
+        };
+    }
+
+    // Writes the events produced by one run in a response format.
+    private interface EventFormat {
+        void write(OutputStream out, Consumer<EventSink> events) throws IOException;
+    }
+
+    private interface WriterFactory {
+        StreamingEventWriter open(OutputStream out) throws IOException;
+    }
+
+    private static EventFormat streaming(WriterFactory factory) {
+        return (out, events) -> {
+            StreamingEventWriter writer = factory.open(out);
+            events.accept(writer);
+            writer.flush();
+        };
+    }
+
+    private WebAsyncTask<Void> respond(String code, MediaType mediaType, String acceptEncoding,
+                                       HttpServletResponse response, EventFormat format) throws IOException {
+        return respond(code, mediaType, mediaType.toString(), acceptEncoding, response, format);
+    }
+
+    // variant tells apart cached responses of one program, e.g. images of different sizes.
+    // Bodies are written straight to the servlet response: runs from an async task,
+    // answers that need no run right away on the request thread (returning null).
+    private WebAsyncTask<Void> respond(String code, MediaType mediaType, String variant, String acceptEncoding,
+                                       HttpServletResponse response, EventFormat format) throws IOException {
+        if (code == null || code.trim().isEmpty()) {
+            response.setContentType(mediaType.toString());
+            format.write(response.getOutputStream(),
+                    sink -> sink.accept(new ExecutionEvent.ErrorEvent("Code cannot be empty.")));
+            return null;
+        }
+
+        // Popular programs are answered from the result cache without running them.
+        byte[] cached = resultCache.get(code, variant);
+        if (cached != null) {
+            writeCached(cached, mediaType, acceptEncoding, response);
+            return null;
         }
 
-        // Instantiate our engine from the core module
-        KidCodeEngine engine = new KidCodeEngine();
+        // Admit before answering so a full scheduler becomes a 429, not a broken stream.
+        ExecutionScheduler.Ticket ticket = scheduler.admit();
+        response.setContentType(mediaType.toString());
+        // The body runs on the scheduler's workers; the ticket is given back when the
+        // request completes, even if the body never got to run.
+        return ticket.task(() -> {
+            OutputStream out = response.getOutputStream();
+            ResultCache.Recorder recorder = resultCache.record(code, variant, out);
+            ExecutionStatus[] status = new ExecutionStatus[1];
+            format.write(recorder, sink -> status[0] = ticket.run(code, sink));
+            // Runs cut short by the instruction limit or the deadline are not repeatable.
+            if (status[0] == ExecutionStatus.COMPLETED) {
+                recorder.store();
+            }
+            out.flush();
+            return null;
+        });
+    }
 
-        // Execute the code and return the list of events.
-        // Spring Boot will handle converting this list into a JSON array.
-        return engine.execute(request.code());
+    private static void writeCached(byte[] gzipped, MediaType mediaType, String acceptEncoding,
+                                    HttpServletResponse response) throws IOException {
+        response.setContentType(mediaType.toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setContentLength(gzipped.length);
+            response.getOutputStream().write(gzipped);
+            return;
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            in.transferTo(response.getOutputStream());
+        }
     }
 
     // --- NEW VALIDATION ENDPOINT ---
     @PostMapping("/validate")
-    public List<ValidationError> validateCode(@RequestBody CodeExecutionRequest request) {
+    public List<ValidationError> validateCode(@RequestBody ValidationRequest request) {
         if (request.code() == null || request.code().isBlank()) {
             return List.of(); // No errors for empty code
         }
 
-        Lexer lexer = new Lexer(request.code());
-        Parser parser = new Parser(lexer);
-        parser.parseProgram(); // This populates the error list in the parser
+        // Without a document id, shares parsed programs with the execute endpoints.
+        List<String> errors = request.documentId() != null
+                ? editorDocuments.errors(request.documentId(), request.code())
+                : programCache.get(request.code()).errors();
 
         // Convert the parser's string errors into structured ValidationError objects
-        return parser.getErrors().stream()
-                .map(errorString -> {
-                    // Simple parsing to extract line number. Example error: "Error line 5: ..."
-                    int lineNumber = 1; // Default
-                    try {
-                        String[] parts = errorString.split(":");
-                        String linePart = parts[0].replaceAll("\\D+", "");
-                        if (!linePart.isEmpty()) {
-                            lineNumber = Integer.parseInt(linePart);
-                        }
-                    } catch (Exception e) {
-                        // Ignore parsing errors, just use line 1
-                    }
-                    return new ValidationError(errorString, lineNumber);
-                })
-                .toList();
+        return errors.stream().map(ValidationError::of).toList();
+    }
+
+    @GetMapping("/cache")
+    public CacheStats cacheStats() {
+        return new CacheStats(programCache.hits(), programCache.misses(), programCache.size(),
+                resultCache.hits(), resultCache.misses(), resultCache.bytes());
     }
-} 
\ No newline at end of file
+}
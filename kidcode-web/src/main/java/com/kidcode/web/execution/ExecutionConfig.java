@@ -0,0 +1,46 @@
+package com.kidcode.web.execution;
+
+import com.kidcode.core.ProgramCache;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Program runs bring their own executor, the scheduler's workers, and a deadline
+// (see ExecutionScheduler.Ticket#task). Any other async work in Spring MVC gets a
+// small pool of its own, so it neither waits behind runs nor takes a worker.
+// Settings: kidcode.mvc.threads (default 2) and kidcode.mvc.queue-capacity (default 64).
+@Configuration
+public class ExecutionConfig implements WebMvcConfigurer {
+    private final ThreadPoolTaskExecutor mvcExecutor = new ThreadPoolTaskExecutor();
+
+    public ExecutionConfig(@Value("${kidcode.mvc.threads:2}") int threads,
+                           @Value("${kidcode.mvc.queue-capacity:64}") int queueCapacity) {
+        mvcExecutor.setCorePoolSize(threads);
+        mvcExecutor.setMaxPoolSize(threads);
+        mvcExecutor.setQueueCapacity(queueCapacity);
+        mvcExecutor.setThreadNamePrefix("kidcode-mvc-");
+        mvcExecutor.initialize();
+    }
+
+    // Shared by the execute and validate endpoints, so an example that was validated
+    // while being typed is already parsed when it is run.
+    @Bean
+    public ProgramCache programCache(@Value("${kidcode.cache.max-entries:1024}") int maxEntries,
+                                     @Value("${kidcode.cache.max-source-chars:4000000}") long maxSourceChars) {
+        return new ProgramCache(maxEntries, maxSourceChars);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcExecutor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        mvcExecutor.shutdown();
+    }
+}
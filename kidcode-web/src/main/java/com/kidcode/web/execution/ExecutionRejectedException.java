@@ -0,0 +1,12 @@
+package com.kidcode.web.execution;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Thrown when every worker is busy and the queue is full; the client should retry later.
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class ExecutionRejectedException extends RuntimeException {
+    public ExecutionRejectedException(String message) {
+        super(message);
+    }
+}
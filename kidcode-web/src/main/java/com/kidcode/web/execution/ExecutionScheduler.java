@@ -0,0 +1,188 @@
+package com.kidcode.web.execution;
+
+import com.kidcode.core.ExecutionStatus;
+import com.kidcode.core.KidCodeEngine;
+import com.kidcode.core.ParsedProgram;
+import com.kidcode.core.ProgramCache;
+import com.kidcode.core.event.EventSink;
+import com.kidcode.core.event.ExecutionEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs KidCode programs on a fixed pool of worker threads instead of the servlet
+ * threads that accepted the requests.
+ *
+ * Programs are CPU-bound, so the pool is sized to the number of cores. At most
+ * {@code queue-capacity} more runs may wait for a worker; beyond that
+ * {@link #admit()} fails with {@link ExecutionRejectedException} (HTTP 429).
+ * Every admitted run has a wall-clock deadline counted from admission, and is
+ * stopped when the deadline passes, even if it is still waiting in the queue.
+ * A run's place is given back when it ends, or when its request completes
+ * without it having run.
+ *
+ * Settings: {@code kidcode.execution.workers} (default: available processors),
+ * {@code kidcode.execution.queue-capacity} (default 64) and
+ * {@code kidcode.execution.deadline} (default 10s).
+ */
+@Component
+public class ExecutionScheduler {
+    private final ThreadPoolExecutor workers;
+    private final AsyncTaskExecutor taskExecutor;
+    private final ScheduledThreadPoolExecutor timer;
+    // One permit per running or queued program; the executor's own queue is unbounded.
+    private final Semaphore permits;
+    private final Duration deadline;
+    private final ProgramCache cache;
+
+    public ExecutionScheduler(ProgramCache cache,
+                              @Value("${kidcode.execution.workers:0}") int workerCount,
+                              @Value("${kidcode.execution.queue-capacity:64}") int queueCapacity,
+                              @Value("${kidcode.execution.deadline:10s}") Duration deadline) {
+        int threads = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("kidcode-exec-"));
+        this.taskExecutor = new TaskExecutorAdapter(workers);
+        this.timer = new ScheduledThreadPoolExecutor(1, namedThreads("kidcode-deadline-"));
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.permits = new Semaphore(threads + queueCapacity);
+        this.deadline = deadline;
+        this.cache = cache;
+    }
+
+    /**
+     * Reserves a place for one run. Call this while handling the request, so a
+     * full scheduler is reported before any response has been written.
+     */
+    public Ticket admit() {
+        if (!permits.tryAcquire()) {
+            throw new ExecutionRejectedException("Too many programs are running right now. Please try again in a moment.");
+        }
+        return new Ticket(System.nanoTime() + deadline.toNanos());
+    }
+
+    /** The worker pool. Only work holding a ticket may be put on it. */
+    public ExecutorService executor() {
+        return workers;
+    }
+
+    public Duration deadline() {
+        return deadline;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    /**
+     * An admitted run. Each ticket runs at most one program; closing it gives its
+     * place back, and stops the program if it is still running.
+     */
+    public final class Ticket implements AutoCloseable {
+        private final long deadlineNanos;
+        private final AtomicBoolean used = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Ticket(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Wraps a response body in an async request task on the scheduler's workers,
+         * which calls {@link #run} from there. The ticket is closed when the request
+         * completes, whether or not the body ran: Spring MVC cancels a body still
+         * in the queue when the client goes away or the request times out.
+         */
+        public WebAsyncTask<Void> task(Callable<Void> body) {
+            // Runs end at their deadline; leave a little room to flush the response.
+            WebAsyncTask<Void> task = new WebAsyncTask<>(deadline.plusSeconds(5).toMillis(), taskExecutor, body);
+            task.onCompletion(this::close);
+            return task;
+        }
+
+        /**
+         * Runs the program on the calling thread, which must be one of the
+         * scheduler's workers (as it is for the body of a {@link #task}).
+         *
+         * @return how the run ended; a run cut off by its deadline is STOPPED
+         */
+        public ExecutionStatus run(String code, EventSink sink) {
+            return run(sink, (engine, stopSignal) -> engine.execute(code, sink, stopSignal));
+        }
+
+        /**
+         * Runs an already parsed program, also stopping when the caller's signal
+         * returns true. Only a run cut off by the deadline reports it as an error.
+         */
+        public ExecutionStatus run(ParsedProgram program, EventSink sink, Supplier<Boolean> stopSignal) {
+            return run(sink, (engine, stopped) -> engine.execute(program, sink, () -> stopped.get() || stopSignal.get()));
+        }
+
+        private ExecutionStatus run(EventSink sink, Run run) {
+            if (!used.compareAndSet(false, true)) {
+                throw new IllegalStateException("Ticket already used");
+            }
+            AtomicBoolean expired = new AtomicBoolean();
+            ScheduledFuture<?> alarm = null;
+            try {
+                ExecutionStatus status = ExecutionStatus.STOPPED;
+                long remaining = deadlineNanos - System.nanoTime();
+                if (remaining > 0 && !released.get()) {
+                    alarm = timer.schedule(() -> expired.set(true), remaining, TimeUnit.NANOSECONDS);
+                    // A ticket closed by its request also stops the run.
+                    status = run.start(new KidCodeEngine(cache), () -> expired.get() || released.get());
+                }
+                if (status == ExecutionStatus.STOPPED && (remaining <= 0 || expired.get())) {
+                    sink.accept(new ExecutionEvent.ErrorEvent(
+                            "Execution stopped: it took longer than " + deadline.toSeconds() + " seconds."));
+                }
+                return status;
+            } finally {
+                if (alarm != null) {
+                    alarm.cancel(false);
+                }
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    private interface Run {
+        ExecutionStatus start(KidCodeEngine engine, Supplier<Boolean> stopSignal);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
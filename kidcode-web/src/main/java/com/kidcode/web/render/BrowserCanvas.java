@@ -0,0 +1,36 @@
+package com.kidcode.web.render;
+
+import com.kidcode.core.builtins.Builtins;
+
+/**
+ * What the web client's canvas looks like, for drawing the same picture on the
+ * server: its size, line width and pen colors. The colors are the names
+ * {@link Builtins#isSupportedColor} accepts, with the RGB values browsers give
+ * them as CSS color keywords.
+ */
+final class BrowserCanvas {
+    static final int SIZE = 500;
+    static final int LINE_WIDTH = 2;
+
+    private BrowserCanvas() {}
+
+    static int rgb(String colorName) {
+        if (!Builtins.isSupportedColor(colorName)) {
+            return 0x000000;
+        }
+        return switch (colorName.toLowerCase()) {
+            case "red" -> 0xFF0000;
+            case "green" -> 0x008000;
+            case "blue" -> 0x0000FF;
+            case "yellow" -> 0xFFFF00;
+            case "orange" -> 0xFFA500;
+            case "purple" -> 0x800080;
+            case "white" -> 0xFFFFFF;
+            case "cyan" -> 0x00FFFF;
+            case "magenta" -> 0xFF00FF;
+            case "pink" -> 0xFFC0CB;
+            case "brown" -> 0xA52A2A;
+            default -> 0x000000; // black
+        };
+    }
+}
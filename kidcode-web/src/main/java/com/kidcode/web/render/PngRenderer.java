@@ -0,0 +1,73 @@
+package com.kidcode.web.render;
+
+import com.kidcode.core.event.EventSink;
+import com.kidcode.core.event.ExecutionEvent;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Draws a run's lines straight into an image as they are produced, the way the
+ * browser canvas would, and writes it as a PNG once the run is over. Segments
+ * are not kept, so memory is the image alone whatever the size of the drawing.
+ */
+public class PngRenderer implements EventSink {
+    private final BufferedImage image;
+    private final Graphics2D graphics;
+    private String color;
+
+    /** @param size the image's width and height; the 500x500 canvas is scaled to fit */
+    public PngRenderer(int size) {
+        this.image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        this.graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        graphics.scale(size / (double) BrowserCanvas.SIZE, size / (double) BrowserCanvas.SIZE);
+        graphics.setStroke(new BasicStroke(BrowserCanvas.LINE_WIDTH, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER));
+        clear();
+    }
+
+    @Override
+    public void accept(ExecutionEvent event) {
+        if (event instanceof ExecutionEvent.MoveEvent m) {
+            move(m.fromX(), m.fromY(), m.toX(), m.toY(), m.newDirection(), m.isPenDown(), m.color());
+        } else if (event instanceof ExecutionEvent.ClearEvent) {
+            clear();
+        }
+    }
+
+    @Override
+    public void move(int fromX, int fromY, int toX, int toY, double direction, boolean penDown, String color) {
+        if (!penDown || (fromX == toX && fromY == toY)) {
+            return;
+        }
+        // Colors repeat constantly, so only a change costs a lookup.
+        if (!color.equals(this.color)) {
+            this.color = color;
+            graphics.setColor(new Color(BrowserCanvas.rgb(color)));
+        }
+        graphics.drawLine(fromX, fromY, toX, toY);
+    }
+
+    private void clear() {
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, BrowserCanvas.SIZE, BrowserCanvas.SIZE);
+        color = null;
+    }
+
+    /** Encodes the image onto out, which is left open. */
+    public void writeTo(OutputStream out) throws IOException {
+        graphics.dispose();
+        try (ImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            ImageIO.write(image, "png", stream);
+        }
+    }
+}
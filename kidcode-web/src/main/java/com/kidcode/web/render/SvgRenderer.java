@@ -0,0 +1,94 @@
+package com.kidcode.web.render;
+
+import com.kidcode.core.event.EventSink;
+import com.kidcode.core.event.ExecutionEvent;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a run's lines as SVG while the program runs. Consecutive segments of
+ * one color share a {@code <path>}, and a segment that starts where the last one
+ * ended adds only its end point, so a turtle drawing costs a few bytes per move.
+ * Nothing is kept beyond the current path's color and end point.
+ */
+public class SvgRenderer implements EventSink {
+    public static final String MEDIA_TYPE = "image/svg+xml";
+    // Keeps single lines of the document to a readable length.
+    private static final int MAX_PATH_SEGMENTS = 1024;
+
+    private final Writer out;
+    private String color; // of the open <path>, or null if none is open
+    private int segments;
+    private int lastX;
+    private int lastY;
+
+    /** @param size the image's width and height; the 500x500 canvas is scaled to fit */
+    public SvgRenderer(OutputStream out, int size) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + size + "\" height=\"" + size
+                + "\" viewBox=\"0 0 " + BrowserCanvas.SIZE + " " + BrowserCanvas.SIZE + "\">\n"
+                + "<rect width=\"" + BrowserCanvas.SIZE + "\" height=\"" + BrowserCanvas.SIZE + "\" fill=\"#fff\"/>\n"
+                + "<g fill=\"none\" stroke-width=\"" + BrowserCanvas.LINE_WIDTH + "\">\n");
+    }
+
+    @Override
+    public void accept(ExecutionEvent event) {
+        // A run clears the canvas only before it draws, so ClearEvent needs nothing here.
+        if (event instanceof ExecutionEvent.MoveEvent m) {
+            move(m.fromX(), m.fromY(), m.toX(), m.toY(), m.newDirection(), m.isPenDown(), m.color());
+        }
+    }
+
+    @Override
+    public void move(int fromX, int fromY, int toX, int toY, double direction, boolean penDown, String color) {
+        if (!penDown || (fromX == toX && fromY == toY)) {
+            return;
+        }
+        try {
+            if (!color.equals(this.color) || segments == MAX_PATH_SEGMENTS) {
+                closePath();
+                this.color = color;
+                out.write(String.format("<path stroke=\"#%06x\" d=\"", BrowserCanvas.rgb(color)));
+            }
+            if (segments == 0 || fromX != lastX || fromY != lastY) {
+                out.write('M');
+                point(fromX, fromY);
+            }
+            out.write('L');
+            point(toX, toY);
+            segments++;
+            lastX = toX;
+            lastY = toY;
+        } catch (IOException e) {
+            // Usually the client went away; this unwinds the run.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void point(int x, int y) throws IOException {
+        out.write(Integer.toString(x));
+        out.write(' ');
+        out.write(Integer.toString(y));
+    }
+
+    private void closePath() throws IOException {
+        if (color != null) {
+            out.write("\"/>\n");
+            color = null;
+            segments = 0;
+        }
+    }
+
+    /** Ends the document and flushes it; the underlying stream is left open. */
+    public void finish() throws IOException {
+        closePath();
+        out.write("</g>\n</svg>\n");
+        out.flush();
+    }
+}
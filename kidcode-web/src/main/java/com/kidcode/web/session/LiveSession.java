@@ -0,0 +1,187 @@
+package com.kidcode.web.session;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kidcode.core.ExecutionStatus;
+import com.kidcode.core.ParsedProgram;
+import com.kidcode.core.event.ExecutionEvent;
+import com.kidcode.core.parser.IncrementalParser;
+import com.kidcode.web.controller.KidCodeController.ValidationError;
+import com.kidcode.web.execution.ExecutionRejectedException;
+import com.kidcode.web.execution.ExecutionScheduler;
+import com.kidcode.web.stream.BinaryEventWriter;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * What the server keeps for one connected editor: the document, its parse, and
+ * the compiled program, which is reused until the next edit.
+ *
+ * The document may grow to {@code maxSourceChars}; an open or edit that would
+ * take it past that closes the socket, and the editor falls back to HTTP.
+ *
+ * The socket delivers one message at a time, so the document needs no locking.
+ * Runs happen on the scheduler's workers, one after the other: starting a run
+ * stops the previous one, and its events are all sent before the next run's.
+ */
+final class LiveSession {
+
+    // Messages from the editor. Changes are applied in order, each against the
+    // text left by the previous one; length is the document length afterwards.
+    record ClientMessage(String type, String code, List<Change> changes, Integer length) {}
+
+    record Change(int offset, int length, String text) {}
+
+    // Messages to the editor. Run events go as binary messages in BinaryEventWriter's
+    // format, followed by "done", or "failed" if the run broke off with an error.
+    record Diagnostics(String type, List<ValidationError> errors) {}
+
+    record RunFinished(String type, ExecutionStatus status) {}
+
+    record Notice(String type, String message) {}
+
+    private final WebSocketSession socket;
+    private final ObjectMapper objectMapper;
+    private final ExecutionScheduler scheduler;
+    private final long maxSourceChars;
+    private final IncrementalParser document = new IncrementalParser("");
+    private ParsedProgram program; // compiled on the first run after an edit
+    private AtomicBoolean stopCurrentRun = new AtomicBoolean();
+    private CompletableFuture<Void> lastRun = CompletableFuture.completedFuture(null);
+
+    LiveSession(WebSocketSession socket, ObjectMapper objectMapper, ExecutionScheduler scheduler, long maxSourceChars) {
+        this.socket = socket;
+        this.objectMapper = objectMapper;
+        this.scheduler = scheduler;
+        this.maxSourceChars = maxSourceChars;
+    }
+
+    /** Replaces the whole document, e.g. when the editor connects. */
+    void open(String code) throws IOException {
+        if (code != null && code.length() > maxSourceChars) {
+            tooLong();
+            return;
+        }
+        document.update(code == null ? "" : code);
+        program = null;
+        sendDiagnostics();
+    }
+
+    /** Applies the editor's changes; asks for the whole text if they don't line up. */
+    void edit(List<Change> changes, Integer length) throws IOException {
+        program = null;
+        try {
+            for (Change change : changes) {
+                if (change == null || change.text() == null || change.offset() < 0 || change.length() < 0) {
+                    send(new Notice("resync", "Malformed change " + change));
+                    return;
+                }
+                if ((long) document.source().length() - change.length() + change.text().length() > maxSourceChars) {
+                    tooLong();
+                    return;
+                }
+                document.edit(change.offset(), change.offset() + change.length(), change.text());
+            }
+        } catch (IndexOutOfBoundsException e) {
+            send(new Notice("resync", e.getMessage()));
+            return;
+        }
+        if (length != null && length != document.source().length()) {
+            send(new Notice("resync", "Document length is " + document.source().length() + ", not " + length));
+        }
+    }
+
+    private void tooLong() throws IOException {
+        socket.close(CloseStatus.TOO_BIG_TO_PROCESS.withReason("Programs in a live session are limited to "
+                + maxSourceChars + " characters"));
+    }
+
+    void sendDiagnostics() throws IOException {
+        send(new Diagnostics("diagnostics", document.errors().stream().map(ValidationError::of).toList()));
+    }
+
+    void run() throws IOException {
+        stop();
+        if (document.source().isBlank()) {
+            // Nothing to run, so no worker: answered right after the previous run.
+            lastRun = lastRun.handle((ignored, failure) -> null).thenRun(() -> sendEvents(writer -> {
+                writer.accept(new ExecutionEvent.ErrorEvent("Code cannot be empty."));
+                return ExecutionStatus.COMPLETED;
+            }));
+            return;
+        }
+        ExecutionScheduler.Ticket ticket;
+        try {
+            ticket = scheduler.admit();
+        } catch (ExecutionRejectedException e) {
+            send(new Notice("rejected", e.getMessage()));
+            return;
+        }
+        if (program == null) {
+            program = ParsedProgram.of(document.statements(), document.errors());
+        }
+        ParsedProgram toRun = program;
+        AtomicBoolean stop = stopCurrentRun;
+        afterLastRun(() -> {
+            try (ticket) {
+                sendEvents(writer -> ticket.run(toRun, writer, () -> stop.get() || !socket.isOpen()));
+            }
+        });
+    }
+
+    /** Stops the run in progress, if any; its events so far are still delivered. */
+    void stop() {
+        stopCurrentRun.set(true);
+        stopCurrentRun = new AtomicBoolean();
+    }
+
+    private interface Events {
+        ExecutionStatus writeTo(BinaryEventWriter writer);
+    }
+
+    // Queues a task on a worker behind the previous run, whether or not that run failed.
+    private void afterLastRun(Runnable task) {
+        lastRun = lastRun.handle((ignored, failure) -> null).thenRunAsync(task, scheduler.executor());
+    }
+
+    private void sendEvents(Events events) {
+        try {
+            BinaryEventWriter writer = new BinaryEventWriter(new MessageStream());
+            ExecutionStatus status = events.writeTo(writer);
+            writer.flush();
+            send(new RunFinished("done", status));
+        } catch (IOException | UncheckedIOException e) {
+            // The editor went away; nothing left to tell it.
+        } catch (RuntimeException e) {
+            // Any other failure still ends the run for the editor, which is waiting for it.
+            try {
+                send(new Notice("failed", "The run failed: " + e.getMessage()));
+            } catch (IOException ignored) {
+                // The editor went away too.
+            }
+        }
+    }
+
+    private void send(Object message) throws IOException {
+        socket.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+    }
+
+    // Sends what was written since the last flush as one binary message.
+    private final class MessageStream extends ByteArrayOutputStream {
+        @Override
+        public void flush() throws IOException {
+            if (size() > 0) {
+                socket.sendMessage(new BinaryMessage(toByteArray()));
+                reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.kidcode.web.session;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kidcode.web.execution.ExecutionScheduler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The editor's WebSocket at {@code /api/session}. It sends the document once,
+ * then only its edits, and asks for diagnostics and runs over the same
+ * connection. Messages are JSON objects with a {@code type}:
+ * <ul>
+ *   <li>{@code open} - {@code code} replaces the document; answered with diagnostics.</li>
+ *   <li>{@code edit} - {@code changes} ({@code offset}, {@code length}, {@code text}) and
+ *       the resulting {@code length}; answered with {@code resync} if they don't apply.</li>
+ *   <li>{@code validate} - answered with {@code diagnostics}.</li>
+ *   <li>{@code run} - answered with the events as binary messages, then {@code done}
+ *       with the status, {@code failed} if the run broke off with an error, or
+ *       {@code rejected} when the scheduler is full.</li>
+ *   <li>{@code stop} - stops the current run.</li>
+ * </ul>
+ *
+ * Settings: {@code kidcode.session.max-sessions} (default 256), beyond which new
+ * connections are closed, and {@code kidcode.session.max-source-chars} (default
+ * 100,000), the longest document one session holds.
+ */
+@Component
+public class LiveSessionHandler extends TextWebSocketHandler {
+    private static final String SESSION = LiveSession.class.getName();
+    // Runs and diagnostics may send at the same time; the decorator queues one behind the other.
+    private static final int SEND_TIME_LIMIT_MILLIS = 10_000;
+    private static final int SEND_BUFFER_LIMIT = 4 * 1024 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final ExecutionScheduler scheduler;
+    private final int maxSessions;
+    private final long maxSourceChars;
+    private final AtomicInteger sessions = new AtomicInteger();
+
+    public LiveSessionHandler(ObjectMapper objectMapper, ExecutionScheduler scheduler,
+                              @Value("${kidcode.session.max-sessions:256}") int maxSessions,
+                              @Value("${kidcode.session.max-source-chars:100000}") long maxSourceChars) {
+        this.objectMapper = objectMapper;
+        this.scheduler = scheduler;
+        this.maxSessions = maxSessions;
+        this.maxSourceChars = maxSourceChars;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        if (sessions.incrementAndGet() > maxSessions) {
+            sessions.decrementAndGet();
+            session.close(CloseStatus.SERVICE_OVERLOAD.withReason("Too many editors are connected"));
+            return;
+        }
+        WebSocketSession socket = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MILLIS, SEND_BUFFER_LIMIT);
+        session.getAttributes().put(SESSION, new LiveSession(socket, objectMapper, scheduler, maxSourceChars));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        LiveSession live = (LiveSession) session.getAttributes().get(SESSION);
+        if (live == null) {
+            return; // turned away, and being closed
+        }
+        LiveSession.ClientMessage request;
+        try {
+            request = objectMapper.readValue(message.getPayload(), LiveSession.ClientMessage.class);
+        } catch (JsonProcessingException e) {
+            session.close(CloseStatus.BAD_DATA.withReason("Malformed message"));
+            return;
+        }
+        switch (String.valueOf(request.type())) {
+            case "open" -> live.open(request.code());
+            case "edit" -> live.edit(request.changes() == null ? List.of() : request.changes(), request.length());
+            case "validate" -> live.sendDiagnostics();
+            case "run" -> live.run();
+            case "stop" -> live.stop();
+            default -> session.close(CloseStatus.BAD_DATA.withReason("Unknown message type"));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        LiveSession live = (LiveSession) session.getAttributes().get(SESSION);
+        if (live != null) {
+            live.stop();
+            sessions.decrementAndGet();
+        }
+    }
+}
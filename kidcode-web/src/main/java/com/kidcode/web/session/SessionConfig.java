@@ -0,0 +1,35 @@
+package com.kidcode.web.session;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+// Registers the editor's live session socket, from the same origins the REST API accepts.
+@Configuration
+@EnableWebSocket
+public class SessionConfig implements WebSocketConfigurer {
+    private final LiveSessionHandler handler;
+
+    public SessionConfig(LiveSessionHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(handler, "/api/session")
+                .setAllowedOrigins("https://kidcode.santosh-singh.me", "http://localhost:8080");
+    }
+
+    // The first message carries the whole program, so allow more than the container's 8 KB default.
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer(
+            @Value("${kidcode.session.max-message-size:1048576}") int maxMessageSize) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(maxMessageSize);
+        return container;
+    }
+}
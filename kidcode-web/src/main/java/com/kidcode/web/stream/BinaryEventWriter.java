@@ -0,0 +1,167 @@
+package com.kidcode.web.stream;
+
+import com.kidcode.core.event.ExecutionEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes execution events in a compact binary form that the browser can decode
+ * with an Int32Array instead of parsing JSON.
+ *
+ * The stream is a sequence of little-endian int32 words. It starts with the magic
+ * word "KCE1", followed by records whose first word is
+ * {@code kind | flags << 8 | arg << 16}:
+ * <ul>
+ *   <li>CLEAR - no payload.</li>
+ *   <li>MOVE - a segment starting at the current position. flags bit 0 is the pen
+ *       state, bit 1 means the deltas are packed into one word as two int16s
+ *       (dx low, dy high), otherwise dx and dy follow as two words. arg is the
+ *       palette index of the color.</li>
+ *   <li>POSITION - x and y words; moves the current position. Only sent when a
+ *       move does not start where the previous one ended.</li>
+ *   <li>DIRECTION - the new heading as the two int32 halves (low, high) of its
+ *       IEEE-754 double bits. Only sent when the heading changes.</li>
+ *   <li>COLOR - defines palette entry arg as a string.</li>
+ *   <li>SAY / ERROR - a message string.</li>
+ * </ul>
+ * Strings are a byte-length word followed by UTF-8 bytes, zero-padded to a
+ * multiple of four bytes.
+ */
+public class BinaryEventWriter implements StreamingEventWriter {
+    public static final String MEDIA_TYPE = "application/vnd.kidcode.events";
+
+    static final int MAGIC = 'K' | 'C' << 8 | 'E' << 16 | '1' << 24;
+    static final int CLEAR = 0, MOVE = 1, POSITION = 2, DIRECTION = 3, COLOR = 4, SAY = 5, ERROR = 6;
+    static final int PEN_DOWN = 1, PACKED = 2;
+    static final int BATCH_SIZE = 1024;
+
+    private final OutputStream out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(16 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private final Map<String, Integer> palette = new HashMap<>();
+    private int x = 0;
+    private int y = 0;
+    private double direction = 0;
+    private int pending = 0;
+
+    public BinaryEventWriter(OutputStream out) {
+        this.out = out;
+        buffer.putInt(MAGIC);
+    }
+
+    @Override
+    public void accept(ExecutionEvent event) {
+        try {
+            if (event instanceof ExecutionEvent.MoveEvent m) {
+                writeMove(m.fromX(), m.fromY(), m.toX(), m.toY(), m.newDirection(), m.isPenDown(), m.color());
+            } else if (event instanceof ExecutionEvent.SayEvent say) {
+                writeString(SAY, say.message());
+            } else if (event instanceof ExecutionEvent.ErrorEvent error) {
+                writeString(ERROR, error.errorMessage());
+            } else if (event instanceof ExecutionEvent.ClearEvent) {
+                reserve(1);
+                buffer.putInt(CLEAR);
+            }
+            countEvent();
+        } catch (IOException e) {
+            // Usually the client went away; this unwinds the run.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The engine reports moves here, so encoding them allocates nothing.
+    @Override
+    public void move(int fromX, int fromY, int toX, int toY, double direction, boolean penDown, String color) {
+        try {
+            writeMove(fromX, fromY, toX, toY, direction, penDown, color);
+            countEvent();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void countEvent() throws IOException {
+        if (++pending >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    private void writeMove(int fromX, int fromY, int toX, int toY, double newDirection, boolean penDown, String color)
+            throws IOException {
+        int colorIndex = paletteIndex(color);
+        if (fromX != x || fromY != y) {
+            reserve(3);
+            buffer.putInt(POSITION).putInt(fromX).putInt(fromY);
+        }
+        if (Double.compare(newDirection, direction) != 0) {
+            long bits = Double.doubleToRawLongBits(newDirection);
+            reserve(3);
+            buffer.putInt(DIRECTION).putInt((int) bits).putInt((int) (bits >>> 32));
+            direction = newDirection;
+        }
+        int dx = toX - fromX;
+        int dy = toY - fromY;
+        int flags = penDown ? PEN_DOWN : 0;
+        if (dx == (short) dx && dy == (short) dy) {
+            reserve(2);
+            buffer.putInt(MOVE | (flags | PACKED) << 8 | colorIndex << 16);
+            buffer.putInt((dx & 0xFFFF) | dy << 16);
+        } else {
+            reserve(3);
+            buffer.putInt(MOVE | flags << 8 | colorIndex << 16).putInt(dx).putInt(dy);
+        }
+        x = toX;
+        y = toY;
+    }
+
+    private int paletteIndex(String color) throws IOException {
+        Integer index = palette.get(color);
+        if (index == null) {
+            index = palette.size();
+            palette.put(color, index);
+            writeString(COLOR | index << 16, color);
+        }
+        return index;
+    }
+
+    private void writeString(int header, String value) throws IOException {
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        int padding = (4 - bytes.length % 4) % 4;
+        reserve(2);
+        buffer.putInt(header).putInt(bytes.length);
+        if (bytes.length + padding > buffer.remaining()) {
+            drain();
+            if (bytes.length + padding > buffer.remaining()) {
+                out.write(bytes);
+                out.write(new byte[padding]);
+                return;
+            }
+        }
+        buffer.put(bytes).put(new byte[padding]);
+    }
+
+    // Makes room for the given number of int32 words.
+    private void reserve(int words) throws IOException {
+        if (buffer.remaining() < words * 4) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        pending = 0;
+        drain();
+        out.flush();
+    }
+}
@@ -0,0 +1,47 @@
+package com.kidcode.web.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.kidcode.core.event.ExecutionEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes execution events as newline-delimited JSON (one event object per line),
+ * flushing to the client every {@link #BATCH_SIZE} events so the browser can start
+ * drawing long before the program finishes.
+ */
+public class NdjsonEventWriter implements StreamingEventWriter {
+    static final int BATCH_SIZE = 256;
+
+    private final SequenceWriter writer;
+    private int pending = 0;
+
+    public NdjsonEventWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        // Writing through the interface type keeps the "type" property on every event.
+        this.writer = objectMapper.writerFor(ExecutionEvent.class)
+                .withRootValueSeparator("\n")
+                .writeValues(out);
+    }
+
+    @Override
+    public void accept(ExecutionEvent event) {
+        try {
+            writer.write(event);
+            if (++pending >= BATCH_SIZE) {
+                flush();
+            }
+        } catch (IOException e) {
+            // Usually the client went away; this unwinds the run.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        pending = 0;
+        writer.flush();
+    }
+}
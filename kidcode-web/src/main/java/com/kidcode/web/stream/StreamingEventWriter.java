@@ -0,0 +1,11 @@
+package com.kidcode.web.stream;
+
+import com.kidcode.core.event.EventSink;
+
+import java.io.IOException;
+
+// An EventSink that encodes events onto a response body and batches its flushes.
+public interface StreamingEventWriter extends EventSink {
+    // Pushes everything written so far to the client.
+    void flush() throws IOException;
+}
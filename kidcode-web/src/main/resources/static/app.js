@@ -3,8 +3,10 @@
 
 import { elements, wireSpeedControl } from './js/ui.js';
 import { KIDCODE_STORAGE_KEY, API_BASE, speedText } from './js/constants.js';
-import { initMonaco, validateCodeRequest } from './js/monaco-setup.js';
-import { clearCanvas, drawnLines, codyState, redrawCanvas, renderEvents, logToOutput, releaseNextStep } from './js/renderer.js';
+import { initMonaco, validateCodeRequest, showDiagnostics } from './js/monaco-setup.js';
+import { resetDrawing, renderEvents, logToOutput, releaseNextStep } from './js/renderer.js';
+import { BINARY_EVENTS, readBinaryEventStream, decodeBinaryEvents } from './js/event-decoder.js';
+import { connectSession, sessionConnected, requestDiagnostics, runInSession } from './js/session.js';
 
 let editor = null;
 let isExecuting = false;
@@ -43,9 +45,28 @@ function initializeExamples(ed) {
   });
 }
 
+// With a live session the server already has the text; otherwise post it.
+function validateCode(code) {
+  if (sessionConnected()) requestDiagnostics();
+  else validateCodeRequest(code);
+}
+
+// Events of one run, over the live session when it is up.
+async function runEvents(code) {
+  if (sessionConnected()) return decodeBinaryEvents(runInSession());
+  const response = await fetch(`${API_BASE}/api/execute/stream`, {
+    method: 'POST',
+    headers: { 'Content-Type': 'application/json', Accept: BINARY_EVENTS },
+    body: JSON.stringify({ code }),
+  });
+  if (!response.ok) throw new Error(`HTTP error! status: ${response.status}`);
+  return readBinaryEventStream(response);
+}
+
 // Hook up Monaco, then wire UI actions that depend on the editor
-initMonaco(validateCodeRequest, initializeExamples).then((ed) => {
+initMonaco(validateCode, initializeExamples).then((ed) => {
   editor = ed;
+  connectSession(editor, showDiagnostics);
 
   // Step modal behavior (close button + keyboard)
   const stepModal = elements.stepModal;
@@ -77,21 +98,12 @@ initMonaco(validateCodeRequest, initializeExamples).then((ed) => {
 
       const code = editor.getValue();
       // reset canvas and state
-      clearCanvas();
-      // reset renderer state
-      // (mutating module-level values from renderer module is fine)
-      // eslint-disable-next-line no-unused-expressions
-      drawnLines.length = 0;
-      Object.assign(codyState, { x: 250, y: 250, direction: 0, color: 'blue' });
+      resetDrawing();
       elements.outputArea.textContent = '';
 
       try {
-        const response = await fetch(`${API_BASE}/api/execute`, {
-          method: 'POST', headers: { 'Content-Type': 'application/json' }, body: JSON.stringify({ code }),
-        });
-        if (!response.ok) throw new Error(`HTTP error! status: ${response.status}`);
-        const events = await response.json();
-        await renderEvents(events, () => elements.speedRange.value, elements.stepModal);
+        // Start drawing as soon as the first events arrive instead of waiting for the whole run.
+        await renderEvents(await runEvents(code), () => elements.speedRange.value, elements.stepModal);
       } catch (err) {
         logToOutput(`Network or server error: ${err.message}`, 'error');
       } finally {
@@ -107,10 +119,8 @@ initMonaco(validateCodeRequest, initializeExamples).then((ed) => {
   if (elements.clearButton) {
     elements.clearButton.addEventListener('click', () => {
       try {
-        clearCanvas();
+        resetDrawing();
         elements.outputArea.textContent = '';
-        drawnLines.length = 0;
-        Object.assign(codyState, { x: 250, y: 250, direction: 0, color: 'blue' });
         logToOutput('Canvas cleared');
       } catch (error) {
         logToOutput(`Error while clearing: ${error.message}`, 'error');
@@ -0,0 +1,126 @@
+// event-decoder.js
+// Decodes the binary event stream (application/vnd.kidcode.events) written by
+// BinaryEventWriter into the same event objects the JSON endpoints return.
+
+export const BINARY_EVENTS = 'application/vnd.kidcode.events';
+
+const MAGIC = 0x3145434b; // "KCE1"
+const CLEAR = 0, MOVE = 1, POSITION = 2, DIRECTION = 3, COLOR = 4, SAY = 5, ERROR = 6;
+const PEN_DOWN = 1, PACKED = 2;
+
+// Async generator yielding one event per record as the bytes of a response arrive.
+export function readBinaryEventStream(response) {
+  return decodeBinaryEvents(responseChunks(response));
+}
+
+// Same, for any async iterable of Uint8Array chunks, e.g. WebSocket messages.
+export async function* decodeBinaryEvents(chunks) {
+  const text = new TextDecoder();
+  const palette = [];
+  const bits = new DataView(new ArrayBuffer(8));
+  let x = 0, y = 0, direction = 0;
+  let pending = new Uint8Array(0);
+  let started = false;
+
+  for await (const value of chunks) {
+    const bytes = concat(pending, value);
+    // Only whole words can be viewed as an Int32Array; keep the tail for the next chunk.
+    const usable = bytes.length - (bytes.length % 4);
+    const copy = bytes.slice(0, usable);
+    const words = new Int32Array(copy.buffer, 0, usable / 4);
+    let i = 0;
+    if (!started && words.length > 0) {
+      if (words[0] !== MAGIC) throw new Error('Not a KidCode event stream');
+      started = true;
+      i = 1;
+    }
+    while (i < words.length) {
+      const header = words[i];
+      const kind = header & 0xff;
+      const flags = (header >>> 8) & 0xff;
+      const arg = header >>> 16;
+      const size = recordSize(kind, flags, words, i);
+      if (size < 0 || i + size > words.length) break; // incomplete record
+      switch (kind) {
+        case CLEAR:
+          yield { type: 'ClearEvent' };
+          break;
+        case MOVE: {
+          let dx, dy;
+          if (flags & PACKED) {
+            dx = (words[i + 1] << 16) >> 16;
+            dy = words[i + 1] >> 16;
+          } else {
+            dx = words[i + 1];
+            dy = words[i + 2];
+          }
+          yield {
+            type: 'MoveEvent', fromX: x, fromY: y, toX: x + dx, toY: y + dy,
+            newDirection: direction, isPenDown: (flags & PEN_DOWN) !== 0, color: palette[arg],
+          };
+          x += dx;
+          y += dy;
+          break;
+        }
+        case POSITION:
+          x = words[i + 1];
+          y = words[i + 2];
+          break;
+        case DIRECTION:
+          bits.setInt32(0, words[i + 1], true);
+          bits.setInt32(4, words[i + 2], true);
+          direction = bits.getFloat64(0, true);
+          break;
+        case COLOR:
+          palette[arg] = readString(text, copy, i);
+          break;
+        case SAY:
+          yield { type: 'SayEvent', message: readString(text, copy, i) };
+          break;
+        case ERROR:
+          yield { type: 'ErrorEvent', errorMessage: readString(text, copy, i) };
+          break;
+        default:
+          throw new Error(`Unknown event kind ${kind}`);
+      }
+      i += size;
+    }
+    pending = bytes.slice(i * 4);
+  }
+}
+
+async function* responseChunks(response) {
+  const reader = response.body.getReader();
+  while (true) {
+    const { value, done } = await reader.read();
+    if (done) return;
+    yield value;
+  }
+}
+
+// Number of words in the record at index i, or -1 if its length word has not arrived yet.
+function recordSize(kind, flags, words, i) {
+  switch (kind) {
+    case CLEAR: return 1;
+    case MOVE: return (flags & PACKED) ? 2 : 3;
+    case POSITION:
+    case DIRECTION: return 3;
+    default:
+      if (i + 1 >= words.length) return -1;
+      return 2 + Math.ceil(words[i + 1] / 4);
+  }
+}
+
+function readString(text, bytes, i) {
+  const length = new DataView(bytes.buffer).getInt32((i + 1) * 4, true);
+  const start = (i + 2) * 4;
+  return text.decode(bytes.subarray(start, start + length));
+}
+
+function concat(a, b) {
+  if (a.length === 0) return b;
+  const joined = new Uint8Array(a.length + b.length);
+  joined.set(a);
+  joined.set(b, a.length);
+  return joined;
+}
@@ -7,6 +7,8 @@ import { elements } from './ui.js';
 
 export let editor = null;
 let validationTimeout = null;
+// Lets the server keep this page's parse and re-parse only what each edit changed.
+const documentId = Math.random().toString(36).slice(2) + Date.now().toString(36);
 
 export function registerKidCodeLanguage() {
   monaco.languages.register({ id: 'kidcode' });
@@ -110,19 +112,23 @@ export async function validateCodeRequest(code) {
     const response = await fetch(`${API_BASE}/api/validate`, {
       method: 'POST',
       headers: { 'Content-Type': 'application/json' },
-      body: JSON.stringify({ code }),
+      body: JSON.stringify({ code, documentId }),
     });
-    const errors = await response.json();
-    const markers = errors.map((err) => ({
-      message: err.message,
-      severity: monaco.MarkerSeverity.Error,
-      startLineNumber: err.lineNumber,
-      endLineNumber: err.lineNumber,
-      startColumn: 1,
-      endColumn: 100,
-    }));
-    monaco.editor.setModelMarkers(editor.getModel(), 'kidcode', markers);
+    showDiagnostics(await response.json());
   } catch (error) {
     console.error('Validation request failed:', error);
   }
 }
+
+// Shows the server's validation errors as Monaco markers
+export function showDiagnostics(errors) {
+  const markers = errors.map((err) => ({
+    message: err.message,
+    severity: monaco.MarkerSeverity.Error,
+    startLineNumber: err.lineNumber,
+    endLineNumber: err.lineNumber,
+    startColumn: 1,
+    endColumn: 100,
+  }));
+  monaco.editor.setModelMarkers(editor.getModel(), 'kidcode', markers);
+}
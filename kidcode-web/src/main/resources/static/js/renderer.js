@@ -4,10 +4,19 @@
 
 import { elements, ctx } from './ui.js';
 
-// Store lines and Cody state for redraw
-export let drawnLines = [];
+// Cody's state; lines already drawn live on `layer`, so they are never redrawn.
 export let codyState = { x: 250, y: 250, direction: 0, color: 'blue' };
 
+// Offscreen canvas holding every line drawn so far. The visible canvas is this
+// layer with Cody on top, recomposed at most once per animation frame.
+let layer = null;
+let layerCtx = null;
+// Segments received but not yet drawn onto the layer: four coordinates and one
+// color per segment.
+const pendingCoords = [];
+const pendingColors = [];
+let frameRequested = false;
+
 // For step-mode control
 let nextResolve = null;
 export function waitForNextKey() {
@@ -52,22 +61,101 @@ export function logToOutput(message, type = 'info') {
   elements.outputArea.appendChild(line);
 }
 
+// Forgets the drawing and puts Cody back at the start.
+export function resetDrawing() {
+  pendingCoords.length = 0;
+  pendingColors.length = 0;
+  if (layerCtx) layerCtx.clearRect(0, 0, layer.width, layer.height);
+  Object.assign(codyState, { x: 250, y: 250, direction: 0, color: 'blue' });
+  clearCanvas();
+}
+
+function ensureLayer() {
+  const { width, height } = elements.drawingCanvas;
+  if (!layer || layer.width !== width || layer.height !== height) {
+    const previous = layer;
+    layer = document.createElement('canvas');
+    layer.width = width;
+    layer.height = height;
+    layerCtx = layer.getContext('2d');
+    // The canvas was resized: carry over the lines drawn so far.
+    if (previous) layerCtx.drawImage(previous, 0, 0);
+  }
+  return layerCtx;
+}
+
+// Draws the pending segments onto the layer, one Path2D and one stroke per run
+// of segments that share a color. Runs keep their order, so overlaps come out
+// the same as drawing the segments one by one.
+function flushSegments() {
+  if (pendingColors.length === 0) return;
+  const target = ensureLayer();
+  target.lineWidth = 2;
+  let color = pendingColors[0];
+  let path = new Path2D();
+  for (let i = 0; i < pendingColors.length; i++) {
+    if (pendingColors[i] !== color) {
+      target.strokeStyle = color;
+      target.stroke(path);
+      color = pendingColors[i];
+      path = new Path2D();
+    }
+    const j = i * 4;
+    path.moveTo(pendingCoords[j], pendingCoords[j + 1]);
+    path.lineTo(pendingCoords[j + 2], pendingCoords[j + 3]);
+  }
+  target.strokeStyle = color;
+  target.stroke(path);
+  pendingCoords.length = 0;
+  pendingColors.length = 0;
+}
+
 export function redrawCanvas() {
   if (!ctx) return;
+  flushSegments();
   ctx.clearRect(0, 0, elements.drawingCanvas.width, elements.drawingCanvas.height);
-  drawnLines.forEach((line) => {
-    ctx.beginPath();
-    ctx.moveTo(line.fromX, line.fromY);
-    ctx.lineTo(line.toX, line.toY);
-    ctx.strokeStyle = line.color;
-    ctx.lineWidth = 2;
-    ctx.stroke();
-  });
+  if (layer) ctx.drawImage(layer, 0, 0);
   drawCody(codyState.x, codyState.y, codyState.direction, codyState.color);
 }
 
-// Renders events returned from the server. Keeps behavior identical to
-// the previous single-file implementation (delay/speed/step modes).
+// Redraws on the next animation frame, however many events arrive before it.
+function scheduleRedraw() {
+  if (frameRequested) return;
+  frameRequested = true;
+  requestAnimationFrame(() => {
+    frameRequested = false;
+    redrawCanvas();
+  });
+}
+
+function applyEvent(event) {
+  switch (event.type) {
+    case 'ClearEvent':
+      resetDrawing();
+      break;
+    case 'MoveEvent':
+      if (event.isPenDown && (event.fromX !== event.toX || event.fromY !== event.toY)) {
+        pendingCoords.push(event.fromX, event.fromY, event.toX, event.toY);
+        pendingColors.push(event.color);
+      }
+      codyState.x = event.toX;
+      codyState.y = event.toY;
+      codyState.direction = event.newDirection;
+      codyState.color = event.color;
+      break;
+    case 'SayEvent':
+      logToOutput(`Cody says: ${event.message}`);
+      break;
+    case 'ErrorEvent':
+      logToOutput(`ERROR: ${event.errorMessage}`, 'error');
+      break;
+  }
+}
+
+// Renders events returned from the server. Step mode draws one event per
+// key press and Normal one every 300 ms; Fast draws as soon as events arrive.
+// `events` may be an array or an async iterable that yields events while the
+// server is still producing them.
 export async function renderEvents(events, getSpeedValue, stepModal) {
   try {
     if (!events || events.length === 0) return;
@@ -82,38 +170,23 @@ export async function renderEvents(events, getSpeedValue, stepModal) {
       });
     }
 
-    for (const event of events) {
+    for await (const event of events) {
       const speed = parseInt(getSpeedValue(), 10);
-      const delay = speed === 0 ? null : (speed === 1 ? 300 : 80);
-
-      switch (event.type) {
-        case 'ClearEvent':
-          drawnLines = [];
-          codyState = { x: 250, y: 250, direction: 0, color: 'blue' };
-          break;
-        case 'MoveEvent':
-          if (event.isPenDown && (event.fromX !== event.toX || event.fromY !== event.toY)) {
-            drawnLines.push({ fromX: event.fromX, fromY: event.fromY, toX: event.toX, toY: event.toY, color: event.color });
-          }
-          codyState = { x: event.toX, y: event.toY, direction: event.newDirection, color: event.color };
-          break;
-        case 'SayEvent':
-          logToOutput(`Cody says: ${event.message}`);
-          break;
-        case 'ErrorEvent':
-          logToOutput(`ERROR: ${event.errorMessage}`, 'error');
-          break;
-      }
-
-      redrawCanvas();
+      applyEvent(event);
 
       if (speed === 0) {
         // Wait for next key (step mode)
+        redrawCanvas();
         await waitForNextKey();
+      } else if (speed === 1) {
+        redrawCanvas();
+        await new Promise((resolve) => setTimeout(resolve, 300));
       } else {
-        await new Promise((resolve) => setTimeout(resolve, delay));
+        // Fast: no per-event wait; everything that arrived by the next frame is drawn in it.
+        scheduleRedraw();
       }
     }
+    redrawCanvas();
   } catch (error) {
     logToOutput(`Rendering error: ${error.message}`, 'error');
     throw error;
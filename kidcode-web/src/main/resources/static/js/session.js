@@ -0,0 +1,104 @@
+// session.js
+// Keeps a WebSocket open to /api/session so the server holds this editor's
+// document. Edits go up as small diffs instead of the whole program, and
+// diagnostics and runs come back over the same connection. Callers fall back
+// to the HTTP endpoints while sessionConnected() is false.
+
+import { API_BASE } from './constants.js';
+
+let socket = null;
+let currentRun = null; // receives the binary messages of the run in progress
+let retryDelay = 1000;
+
+export function connectSession(editor, onDiagnostics) {
+  // Changes in one event all refer to the text before it; applying them from
+  // the last offset backwards keeps the earlier offsets valid.
+  editor.onDidChangeModelContent((event) => {
+    if (!sessionConnected()) return;
+    const changes = [...event.changes]
+      .sort((a, b) => b.rangeOffset - a.rangeOffset)
+      .map((c) => ({ offset: c.rangeOffset, length: c.rangeLength, text: c.text }));
+    send({ type: 'edit', changes, length: editor.getModel().getValueLength() });
+  });
+  connect(editor, onDiagnostics);
+}
+
+function connect(editor, onDiagnostics) {
+  const ws = new WebSocket(sessionUrl());
+  ws.binaryType = 'arraybuffer';
+  ws.onopen = () => {
+    socket = ws;
+    send({ type: 'open', code: editor.getValue() });
+  };
+  ws.onmessage = (event) => {
+    if (typeof event.data !== 'string') {
+      currentRun?.push(new Uint8Array(event.data));
+      return;
+    }
+    const message = JSON.parse(event.data);
+    // Reset only once the server answers: a full server, or a document too long
+    // for a session, closes the socket right after it opens.
+    retryDelay = 1000;
+    switch (message.type) {
+      case 'diagnostics': onDiagnostics(message.errors); break;
+      // The server's copy no longer matches ours; send the whole text again.
+      case 'resync': send({ type: 'open', code: editor.getValue() }); break;
+      case 'done': currentRun?.finish(); break;
+      case 'rejected':
+      case 'failed': currentRun?.fail(new Error(message.message)); break;
+      default: console.warn('Unknown session message', message);
+    }
+  };
+  ws.onclose = () => {
+    if (socket === ws) socket = null;
+    currentRun?.fail(new Error('Lost the connection to the server'));
+    setTimeout(() => connect(editor, onDiagnostics), retryDelay);
+    retryDelay = Math.min(retryDelay * 2, 30000);
+  };
+}
+
+export function sessionConnected() {
+  return socket !== null && socket.readyState === WebSocket.OPEN;
+}
+
+export function requestDiagnostics() {
+  send({ type: 'validate' });
+}
+
+// Runs the document as the server has it; yields the run's binary messages
+// as Uint8Arrays, for decodeBinaryEvents.
+export function runInSession() {
+  const chunks = [];
+  let finished = false;
+  let failure = null;
+  let wake = null;
+  const run = {
+    push(chunk) { chunks.push(chunk); wake?.(); },
+    finish() { finished = true; wake?.(); },
+    fail(error) { failure = error; wake?.(); },
+  };
+  currentRun = run;
+  send({ type: 'run' });
+  return (async function* () {
+    try {
+      while (true) {
+        if (chunks.length > 0) { yield chunks.shift(); continue; }
+        if (failure) throw failure;
+        if (finished) return;
+        await new Promise((resolve) => { wake = resolve; });
+        wake = null;
+      }
+    } finally {
+      if (currentRun === run) currentRun = null;
+    }
+  })();
+}
+
+function send(message) {
+  if (sessionConnected()) socket.send(JSON.stringify(message));
+}
+
+function sessionUrl() {
+  const base = API_BASE.startsWith('http') ? API_BASE : window.location.origin;
+  return `${base.replace(/^http/, 'ws')}/api/session`;
+}
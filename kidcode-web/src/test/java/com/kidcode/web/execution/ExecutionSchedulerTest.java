@@ -0,0 +1,88 @@
+package com.kidcode.web.execution;
+
+import com.kidcode.core.ProgramCache;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutionSchedulerTest {
+
+    // One worker and one place in the queue: two tickets fill the scheduler.
+    private final ExecutionScheduler scheduler =
+            new ExecutionScheduler(new ProgramCache(16, 100_000), 1, 1, Duration.ofSeconds(10));
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void testQueuedBodyCancelledByDisconnectGivesItsPlaceBack() throws Exception {
+        assertPlaceComesBack(listener -> listener.onError(new AsyncEvent(null, new IOException("Client went away"))));
+    }
+
+    @Test
+    void testQueuedBodyCancelledByTimeoutGivesItsPlaceBack() throws Exception {
+        assertPlaceComesBack(listener -> listener.onTimeout(new AsyncEvent(null)));
+    }
+
+    private interface Failure {
+        void fire(AsyncListener listener) throws IOException;
+    }
+
+    private void assertPlaceComesBack(Failure failure) throws Exception {
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MockAsyncContext running = start(scheduler.admit().task(() -> {
+            busy.countDown();
+            release.await();
+            return null;
+        }));
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+
+        AtomicBoolean ran = new AtomicBoolean();
+        MockAsyncContext queued = start(scheduler.admit().task(() -> {
+            ran.set(true);
+            return null;
+        }));
+        assertThrows(ExecutionRejectedException.class, scheduler::admit);
+
+        // The container reports the failure, then completes the request.
+        for (AsyncListener listener : queued.getListeners()) {
+            failure.fire(listener);
+        }
+        queued.complete();
+        scheduler.admit().close();
+
+        release.countDown();
+        running.complete();
+        scheduler.admit().close();
+        scheduler.admit().close();
+        assertFalse(ran.get(), "A cancelled body must not run");
+    }
+
+    private static MockAsyncContext start(WebAsyncTask<Void> task) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        WebAsyncManager manager = WebAsyncUtils.getAsyncManager(request);
+        manager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, new MockHttpServletResponse()));
+        manager.startCallableProcessing(task);
+        return (MockAsyncContext) request.getAsyncContext();
+    }
+}